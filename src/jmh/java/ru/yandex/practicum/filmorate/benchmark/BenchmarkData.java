@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Запуск приложения на встроенной H2 и наполнение его данными для бенчмарков. Данные загружаются через
+ * {@link ImportService}, поэтому индексы в памяти строятся так же, как в работающем приложении.
+ */
+final class BenchmarkData {
+    static final long FIRST_HUB = 1;
+    static final long SECOND_HUB = 2;
+    private static final int GENRES = 6;
+    private static final int RATINGS = 5;
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static ConfigurableApplicationContext start(String engine, String... extraArgs) {
+        try {
+            Path memDir = Files.createTempDirectory("filmorate-bench");
+            List<String> args = new ArrayList<>(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                    "--filmorate.storage.engine=" + engine,
+                    "--filmorate.storage.mem.dir=" + memDir,
+                    "--filmorate.jdbc.metrics.enabled=false",
+                    "--logging.level.root=WARN",
+                    "--logging.level.org.zalando.logbook=OFF"));
+            args.addAll(List.of(extraArgs));
+            return new SpringApplicationBuilder(FilmorateApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(args.toArray(String[]::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void seedFilms(ConfigurableApplicationContext context, int films) {
+        ImportService importService = context.getBean(ImportService.class);
+        load(films, BenchmarkData::film, importService::importFilms);
+    }
+
+    static void seedUsers(ConfigurableApplicationContext context, int users) {
+        ImportService importService = context.getBean(ImportService.class);
+        load(users, BenchmarkData::user, importService::importUsers);
+    }
+
+    /**
+     * Каждый пользователь ставит likesPerUser лайков; популярность фильмов убывает квадратично от первого id.
+     */
+    static void seedLikes(ConfigurableApplicationContext context, int films, int users, int likesPerUser) {
+        ImportService importService = context.getBean(ImportService.class);
+        Random random = new Random(SEED);
+        load(users * likesPerUser, i -> {
+            double r = random.nextDouble();
+            long filmId = 1 + (long) (films * r * r);
+            return "{\"filmId\":" + filmId + ",\"userId\":" + (1 + i / likesPerUser) + "}";
+        }, importService::importLikes);
+    }
+
+    /**
+     * Два пользователя-хаба, у каждого по friends друзей; половина друзей у них общая.
+     */
+    static void seedHubFriends(ConfigurableApplicationContext context, int friends) {
+        ImportService importService = context.getBean(ImportService.class);
+        long firstFriend = SECOND_HUB + 1;
+        long secondFriend = firstFriend + friends / 2;
+        load(friends * 2, i -> {
+            boolean first = i < friends;
+            long userId = first ? FIRST_HUB : SECOND_HUB;
+            long friendId = (first ? firstFriend : secondFriend) + i % friends;
+            return "{\"userId\":" + userId + ",\"friendId\":" + friendId + "}";
+        }, importService::importFriends);
+    }
+
+    static String film(int i) {
+        return "{\"name\":\"Фильм " + i + "\",\"description\":\"Описание фильма номер " + i + "\","
+                + "\"releaseDate\":\"" + (1950 + i % 70) + "-01-01\",\"duration\":" + (80 + i % 100) + ","
+                + "\"mpa\":{\"id\":" + (1 + i % RATINGS) + "},"
+                + "\"genres\":[{\"id\":" + (1 + i % GENRES) + "},{\"id\":" + (1 + (i / GENRES) % GENRES) + "}]}";
+    }
+
+    static byte[] ndjson(int lines, IntFunction<String> line) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append(line.apply(i)).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String user(int i) {
+        return "{\"name\":\"user" + i + "\",\"email\":\"user" + i + "@mail.ru\",\"login\":\"user" + i + "\","
+                + "\"birthday\":\"1990-01-01\"}";
+    }
+
+    private static void load(int lines, IntFunction<String> line, Importer importer) {
+        try {
+            importer.load(new ByteArrayInputStream(ndjson(lines, line)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Importer {
+        Object load(ByteArrayInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рейтинг популярных фильмов и рекомендации на базе с лайками: users пользователей по likesPerUser лайков.
+ * Рекомендации замеряются на отдельном наборе из 100000 пользователей и 50000 фильмов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FilmServiceBenchmark {
+    private static final int COUNT = 10;
+
+    @State(Scope.Benchmark)
+    public static class Popular {
+        @Param({"1000", "10000", "100000"})
+        private int films;
+
+        @Param({"10000"})
+        private int users;
+
+        @Param({"20"})
+        private int likesPerUser;
+
+        private ConfigurableApplicationContext context;
+        private FilmService filmService;
+
+        @Setup
+        public void setUp() {
+            context = start(films, users, likesPerUser);
+            filmService = context.getBean(FilmService.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recommendations {
+        @Param({"50000"})
+        private int films;
+
+        @Param({"100000"})
+        private int users;
+
+        @Param({"20"})
+        private int likesPerUser;
+
+        private ConfigurableApplicationContext context;
+        private FilmService filmService;
+
+        @Setup
+        public void setUp() {
+            context = start(films, users, likesPerUser);
+            filmService = context.getBean(FilmService.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Film> findBestByLikes(Popular state) {
+        return state.filmService.findBestByLikes(COUNT, null, null, null);
+    }
+
+    @Benchmark
+    public List<Film> findBestByLikesInGenre(Popular state) {
+        return state.filmService.findBestByLikes(COUNT, 1L, null, null);
+    }
+
+    @Benchmark
+    public List<Film> findBestByLikesInYear(Popular state) {
+        return state.filmService.findBestByLikes(COUNT, null, null, 1990);
+    }
+
+    @Benchmark
+    public List<Film> findRecommendations(Recommendations state) {
+        return state.filmService.findRecommendations(1 + ThreadLocalRandom.current().nextInt(state.users), COUNT);
+    }
+
+    private static ConfigurableApplicationContext start(int films, int users, int likesPerUser) {
+        ConfigurableApplicationContext context = BenchmarkData.start("db");
+        BenchmarkData.seedFilms(context, films);
+        BenchmarkData.seedUsers(context, users);
+        BenchmarkData.seedLikes(context, films, users, likesPerUser);
+        return context;
+    }
+}
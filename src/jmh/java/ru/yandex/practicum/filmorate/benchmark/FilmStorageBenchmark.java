@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов из хранилища: движок db (FilmDbStorage) против mem, без кэша и через кэш. Отдельно замеряется
+ * время обновления фильма в движке mem: при snapshot-every=10000 в выборку попадают записи, совпавшие со снимком,
+ * и по хвосту распределения видно, ждёт ли запись его сохранения; 1000000 — то же без снимков.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FilmStorageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Reads {
+        @Param({"1000", "10000", "100000"})
+        private int films;
+
+        @Param({"db", "mem"})
+        private String engine;
+
+        private ConfigurableApplicationContext context;
+        private FilmStorage engineStorage;
+        private FilmStorage cachedStorage;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkData.start(engine);
+            BenchmarkData.seedFilms(context, films);
+            engineStorage = engineStorage(context);
+            cachedStorage = context.getBean("filmCached", FilmStorage.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+        private long randomId() {
+            return 1 + ThreadLocalRandom.current().nextInt(films);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+        @Param({"100000"})
+        private int films;
+
+        @Param({"10000", "1000000"})
+        private int snapshotEvery;
+
+        private ConfigurableApplicationContext context;
+        private FilmStorage engineStorage;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkData.start("mem", "--filmorate.storage.mem.snapshot-every=" + snapshotEvery);
+            BenchmarkData.seedFilms(context, films);
+            engineStorage = engineStorage(context);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Film findFilmById(Reads state) {
+        return state.engineStorage.findFilmById(state.randomId());
+    }
+
+    @Benchmark
+    public Film findFilmByIdCached(Reads state) {
+        return state.cachedStorage.findFilmById(state.randomId());
+    }
+
+    @Benchmark
+    public List<Film> findFilmsByIds(Reads state) {
+        long first = state.randomId();
+        return state.engineStorage.findFilmsByIds(List.of(first, first / 2 + 1, first / 3 + 1, first / 5 + 1,
+                first / 7 + 1, first / 11 + 1, first / 13 + 1, first / 17 + 1, first / 19 + 1, first / 23 + 1));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Film updateFilm(Writes state) {
+        Film film = state.engineStorage.findFilmById(1 + ThreadLocalRandom.current().nextInt(state.films));
+        film.setDuration(film.getDuration() % 300 + 1);
+        return state.engineStorage.update(film);
+    }
+
+    private static FilmStorage engineStorage(ConfigurableApplicationContext context) {
+        return BeanFactoryAnnotationUtils.qualifiedBeanOfType(context.getBeanFactory(), FilmStorage.class,
+                "filmEngine");
+    }
+}
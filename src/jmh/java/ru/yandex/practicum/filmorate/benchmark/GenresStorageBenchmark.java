@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение жанров фильма. Вставка не повторяется для одного фильма, поэтому каждая итерация сохраняет жанры
+ * BATCH разным фильмам без жанров, а перед итерацией их жанры удаляются.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = GenresStorageBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = GenresStorageBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GenresStorageBenchmark {
+    static final int BATCH = 1000;
+    private static final List<Long> GENRE_IDS = List.of(1L, 3L, 5L);
+    private static final String DELETE_GENRES = "DELETE FROM film_genres WHERE film_id > ?";
+
+    @Param({"1000", "10000", "100000"})
+    private int films;
+
+    private ConfigurableApplicationContext context;
+    private GenresDbStorage genresStorage;
+    private JdbcTemplate jdbc;
+    private long nextFilmId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.start("db");
+        BenchmarkData.seedFilms(context, films + BATCH);
+        genresStorage = context.getBean(GenresDbStorage.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTargets() {
+        jdbc.update(DELETE_GENRES, films);
+        nextFilmId = films + 1;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveFilmGenres() {
+        genresStorage.saveFilmGenres(nextFilmId++, GENRE_IDS);
+    }
+}
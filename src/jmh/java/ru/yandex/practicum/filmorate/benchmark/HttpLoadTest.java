@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Нагрузочный прогон уже запущенного приложения: заливает фильмы через /import/films, затем каждый путь по очереди
+ * нагружается заданным числом клиентов с keep-alive соединениями. Раз в полсекунды снимаются метрики
+ * filmorate.jdbc.bulkhead.available и filmorate.jdbc.bulkhead.waiting, чтобы видеть, ждали ли запросы соединения.
+ * Аргументы: адрес, число клиентов, секунд на путь, число фильмов и пути, где {id} заменяется случайным id фильма.
+ */
+public final class HttpLoadTest {
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.E+-]+)");
+    private static final long SAMPLE_MILLIS = 500;
+
+    private HttpLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Использование: HttpLoadTest <адрес> <клиентов> <секунд> <фильмов> <путь>...");
+            System.exit(2);
+        }
+        String baseUrl = args[0];
+        int clients = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        int films = Integer.parseInt(args[3]);
+        List<String> paths = Arrays.asList(args).subList(4, args.length);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(executor)
+                    .build();
+            HttpResponse<String> imported = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/import/films"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(BenchmarkData.ndjson(films, BenchmarkData::film)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            System.out.println("Импорт фильмов: " + imported.statusCode() + " " + imported.body());
+            for (String path : paths) {
+                System.out.println(run(client, baseUrl, path, clients, seconds, films));
+            }
+        }
+        System.exit(0);
+    }
+
+    private static String run(HttpClient client, String baseUrl, String path, int clients, int seconds, int films)
+            throws InterruptedException {
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        LongAdder ok = new LongAdder();
+        LongAdder unavailable = new LongAdder();
+        LongAdder serverErrors = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAccumulator minAvailable = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        LongAccumulator maxWaiting = new LongAccumulator(Math::max, -1);
+        LongAdder samples = new LongAdder();
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+
+        HttpClient metricsClient = HttpClient.newHttpClient();
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (System.nanoTime() < end) {
+                gauge(metricsClient, baseUrl, "filmorate.jdbc.bulkhead.available").ifPresent(minAvailable::accumulate);
+                gauge(metricsClient, baseUrl, "filmorate.jdbc.bulkhead.waiting").ifPresent(value -> {
+                    maxWaiting.accumulate(value);
+                    samples.increment();
+                });
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                workers.submit(() -> {
+                    long[] times = new long[256];
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        String uri = baseUrl + path.replace("{id}",
+                                String.valueOf(1 + ThreadLocalRandom.current().nextInt(films)));
+                        long start = System.nanoTime();
+                        try {
+                            int status = client.send(HttpRequest.newBuilder(URI.create(uri))
+                                    .timeout(Duration.ofSeconds(60))
+                                    .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 503) {
+                                unavailable.increment();
+                            } else if (status >= 500) {
+                                serverErrors.increment();
+                            } else {
+                                ok.increment();
+                            }
+                        } catch (IOException e) {
+                            failed.increment();
+                        }
+                        if (count == times.length) {
+                            times = Arrays.copyOf(times, count * 2);
+                        }
+                        times[count++] = System.nanoTime() - start;
+                    }
+                    latencies.add(Arrays.copyOf(times, count));
+                    return null;
+                });
+            }
+        }
+        sampler.join();
+
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        long responses = ok.sum() + unavailable.sum() + serverErrors.sum();
+        return String.format("%s клиентов=%d rps=%.0f ok=%d 503=%d 5xx=%d ошибок=%d p50=%.1fms p99=%.1fms "
+                        + "max=%.1fms bulkhead.available.min=%s bulkhead.waiting.max=%s замеров=%d",
+                path, clients, responses / (double) seconds, ok.sum(), unavailable.sum(), serverErrors.sum(),
+                failed.sum(), percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1.0),
+                maxWaiting.get() < 0 ? "нет" : minAvailable.get(), maxWaiting.get() < 0 ? "нет" : maxWaiting.get(),
+                samples.sum());
+    }
+
+    private static OptionalLong gauge(HttpClient client, String baseUrl, String name) {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/actuator/metrics/" + name)).timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Matcher value = METRIC_VALUE.matcher(response.body());
+            if (response.statusCode() != 200 || !value.find()) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of((long) Double.parseDouble(value.group(1)));
+        } catch (IOException e) {
+            return OptionalLong.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return OptionalLong.empty();
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) (sorted.length * quantile));
+        return sorted[index] / 1e6;
+    }
+}
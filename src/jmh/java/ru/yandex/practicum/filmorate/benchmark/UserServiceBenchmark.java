@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.db.FriendDbStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья двух пользователей, у каждого из которых по friends друзей, а общая — половина. Сервис отвечает из
+ * графа друзей в памяти; для сравнения рядом замеряется тот же ответ одним запросом к базе.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        @Param({"5000"})
+        private int friends;
+
+        @Param({"db", "mem"})
+        private String engine;
+
+        private ConfigurableApplicationContext context;
+        private UserService userService;
+
+        @Setup
+        public void setUp() {
+            context = start(engine, friends);
+            userService = context.getBean(UserService.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({"5000"})
+        private int friends;
+
+        private ConfigurableApplicationContext context;
+        private FriendDbStorage friendStorage;
+
+        @Setup
+        public void setUp() {
+            context = start("db", friends);
+            friendStorage = context.getBean(FriendDbStorage.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> findAllCommonFriends(Service state) {
+        return state.userService.findAllCommonFriends(BenchmarkData.FIRST_HUB, BenchmarkData.SECOND_HUB);
+    }
+
+    @Benchmark
+    public long countCommonFriends(Service state) {
+        return state.userService.countCommonFriends(BenchmarkData.FIRST_HUB, BenchmarkData.SECOND_HUB);
+    }
+
+    @Benchmark
+    public List<User> findCommonFriendsQuery(Query state) {
+        return state.friendStorage.findCommonFriends(BenchmarkData.FIRST_HUB, BenchmarkData.SECOND_HUB);
+    }
+
+    @Benchmark
+    public long countCommonFriendsQuery(Query state) {
+        return state.friendStorage.countCommonFriends(BenchmarkData.FIRST_HUB, BenchmarkData.SECOND_HUB);
+    }
+
+    private static ConfigurableApplicationContext start(String engine, int friends) {
+        ConfigurableApplicationContext context = BenchmarkData.start(engine);
+        BenchmarkData.seedUsers(context, friends * 3 / 2 + 2);
+        BenchmarkData.seedHubFriends(context, friends);
+        return context;
+    }
+}
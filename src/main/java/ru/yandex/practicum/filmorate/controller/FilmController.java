@@ -2,8 +2,13 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.ExportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
@@ -12,16 +17,28 @@ import java.util.List;
 @RestController
 @RequestMapping("/films")
 public class FilmController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final FilmService filmService;
+    private final ExportService exportService;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ExportService exportService) {
         this.filmService = filmService;
+        this.exportService = exportService;
     }
 
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public ResponseEntity<Collection<Film>> findAll(@RequestParam(defaultValue = "0") long after,
+                                                    @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return ResponseEntity.ok(filmService.findAll());
+        }
+        Page<Film> page = filmService.findPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
@@ -29,6 +46,13 @@ public class FilmController {
         return filmService.findById(id);
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportFilms);
+    }
+
     @PostMapping
     public Film create(@Valid @RequestBody Film film) {
         return filmService.create(film);
@@ -40,8 +64,24 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> findBestByLikes(@RequestParam(defaultValue = "10") int count) {
-        return filmService.findBestByLikes(count);
+    public List<Film> findBestByLikes(@RequestParam(defaultValue = "10") int count,
+                                      @RequestParam(required = false) Long genreId,
+                                      @RequestParam(required = false) Long mpaId,
+                                      @RequestParam(required = false) Integer year) {
+        return filmService.findBestByLikes(count, genreId, mpaId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String query,
+                             @RequestParam(defaultValue = "title,description") List<String> by,
+                             @RequestParam(defaultValue = "10") int count) {
+        return filmService.search(query, by, count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> findTrending(@RequestParam(defaultValue = "24h") String window,
+                                   @RequestParam(defaultValue = "10") int count) {
+        return filmService.findTrending(window, count);
     }
 
     @PutMapping("/{id}/like/{userId}")
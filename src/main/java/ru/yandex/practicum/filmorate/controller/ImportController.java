@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/import")
+@RequiredArgsConstructor
+public class ImportController {
+    private final ImportService importService;
+
+    @PostMapping(value = "/films", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importFilms(InputStream body) throws IOException {
+        return importService.importFilms(body);
+    }
+
+    @PostMapping(value = "/users", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importUsers(InputStream body) throws IOException {
+        return importService.importUsers(body);
+    }
+
+    @PostMapping(value = "/likes", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importLikes(InputStream body) throws IOException {
+        return importService.importLikes(body);
+    }
+
+    @PostMapping(value = "/friends", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importFriends(InputStream body) throws IOException {
+        return importService.importFriends(body);
+    }
+}
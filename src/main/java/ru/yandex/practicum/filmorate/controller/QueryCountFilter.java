@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.storage.db.QueryCounter;
+
+import java.io.IOException;
+
+/**
+ * Считает запросы к базе за HTTP-запрос и пишет их число в метрику по шаблону адреса. Запросы, выполнившие больше
+ * queries-per-request-warn обращений к базе, попадают в журнал: так видны N+1 выборки.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.jdbc.metrics.enabled", havingValue = "true")
+public class QueryCountFilter extends OncePerRequestFilter {
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+
+    public QueryCountFilter(MeterRegistry registry,
+                            @Value("${filmorate.jdbc.metrics.queries-per-request-warn:50}") int warnThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int queries = QueryCounter.finish();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("filmorate.http.queries")
+                    .description("Число запросов к базе за один HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry)
+                    .record(queries);
+            if (queries > warnThreshold) {
+                log.warn("{} {} выполнил {} запросов к базе", request.getMethod(), request.getRequestURI(), queries);
+            }
+        }
+    }
+}
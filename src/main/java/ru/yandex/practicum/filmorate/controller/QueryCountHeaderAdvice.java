@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.storage.db.QueryCounter;
+
+/**
+ * Отладочный заголовок X-Query-Count с числом запросов к базе, выполненных до записи ответа. Запросы считает
+ * {@link QueryCountFilter} вместе с обёрткой DataSource, поэтому без filmorate.jdbc.metrics.enabled заголовок не
+ * добавляется.
+ */
+@RestControllerAdvice
+@ConditionalOnExpression("${filmorate.jdbc.metrics.enabled:false} "
+        + "and ${filmorate.jdbc.metrics.query-count-header:false}")
+public class QueryCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+    public static final String HEADER = "X-Query-Count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        response.getHeaders().set(HEADER, String.valueOf(QueryCounter.current()));
+        return body;
+    }
+}
@@ -3,8 +3,15 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ExportService;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -13,16 +20,37 @@ import java.util.Collection;
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserService userService;
+    private final FilmService filmService;
+    private final ExportService exportService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, ExportService exportService) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.exportService = exportService;
     }
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<Collection<User>> findAll(@RequestParam(defaultValue = "0") long after,
+                                                    @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+        Page<User> page = userService.findPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportUsers);
     }
 
     @PostMapping
@@ -65,4 +93,21 @@ public class UserController {
                                                  @PathVariable("otherId") long friendId) {
         return userService.findAllCommonFriends(userId, friendId);
     }
+
+    @GetMapping("/{id}/friends/common/{otherId}/count")
+    public long countCommonFriends(@PathVariable("id") long userId, @PathVariable("otherId") long friendId) {
+        return userService.countCommonFriends(userId, friendId);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> suggestFriends(@PathVariable("id") long userId,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        return userService.suggestFriends(userId, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> findRecommendations(@PathVariable("id") long userId,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        return filmService.findRecommendations(userId, limit);
+    }
 }
@@ -3,7 +3,6 @@ package ru.yandex.practicum.filmorate.mapper;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
 
 import java.sql.ResultSet;
@@ -14,22 +13,15 @@ import java.util.ArrayList;
 public class FilmRowMapper implements RowMapper<Film> {
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Film film = Film.builder()
+        return Film.builder()
                 .id(rs.getLong("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .releaseDate(rs.getDate("release_date").toLocalDate())
                 .duration(rs.getInt("duration"))
+                .likeCount(rs.getInt("like_count"))
                 .mpa(new Rating(rs.getLong("rating_id"), rs.getString("rating_name")))
                 .genres(new ArrayList<>())
                 .build();
-
-        long genreId = rs.getLong("genre_id");
-        if (!rs.wasNull()) {
-            film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
-        }
-
-        return film;
     }
 }
-
@@ -6,6 +6,7 @@ import ru.yandex.practicum.filmorate.model.Like;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 
 @Component
 public class LikeRowMapper implements RowMapper<Like> {
@@ -14,6 +15,7 @@ public class LikeRowMapper implements RowMapper<Like> {
         return Like.builder()
                 .filmId(rs.getLong("film_id"))
                 .userId(rs.getLong("user_id"))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
                 .build();
     }
 }
@@ -36,6 +36,8 @@ public class Film {
 
     private Set<Long> likes;
 
+    private int likeCount;
+
     private List<Genre> genres;
 
     private Rating mpa;
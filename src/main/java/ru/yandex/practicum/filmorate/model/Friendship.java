@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class Friendship {
+    @NotNull
+    private Long userId;
+
+    @NotNull
+    private Long friendId;
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportResult {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long accepted;
+    private long rejected;
+    private List<ImportError> errors = new ArrayList<>();
+
+    public void accept(int count) {
+        accepted += count;
+    }
+
+    public void reject(long line, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportError(line, message));
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
+import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 @Data
 @Builder
 public class Like {
+    @NotNull
     private Long filmId;
+
+    @NotNull
     private Long userId;
+
+    private LocalDateTime createdAt;
 }
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    private Long nextCursor;
+
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Long> idGetter) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idGetter.apply(items.get(limit - 1)));
+    }
+}
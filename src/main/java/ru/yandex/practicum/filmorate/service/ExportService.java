@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+@Service
+@Slf4j
+public class ExportService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    @Autowired
+    public ExportService(@Qualifier("filmEngine") FilmStorage filmStorage, @Qualifier("userEngine") UserStorage userStorage,
+                         ObjectMapper objectMapper) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void exportFilms(OutputStream out) throws IOException {
+        long count = export(out, filmStorage::streamAll);
+        log.debug("Выгружено фильмов: {}", count);
+    }
+
+    public void exportUsers(OutputStream out) throws IOException {
+        long count = export(out, userStorage::streamAll);
+        log.debug("Выгружено пользователей: {}", count);
+    }
+
+    private <T> long export(OutputStream out, Consumer<Consumer<T>> source) throws IOException {
+        long[] count = new long[1];
+        try (JsonGenerator generator = objectMapper.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            try {
+                source.accept(value -> {
+                    try {
+                        objectWriter.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return count[0];
+    }
+}
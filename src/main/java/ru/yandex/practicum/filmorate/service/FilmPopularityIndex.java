@@ -0,0 +1,278 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который хранится в памяти и обновляется при каждом лайке.
+ * Кроме общего рейтинга ведутся отдельные рейтинги по каждому жанру и возрастному рейтингу.
+ */
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> BY_LIKES = Comparator.comparingInt(Entry::likes)
+            .reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private static final int MIN_SCANNED = 1000;
+    private static final int SCANNED_PER_RESULT = 20;
+
+    private final FilmStorage filmStorage;
+    private final ConcurrentMap<Long, FilmStats> statsByFilm = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_LIKES);
+    private final ConcurrentMap<Long, NavigableSet<Entry>> rankingByGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, NavigableSet<Entry>> rankingByRating = new ConcurrentHashMap<>();
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public FilmPopularityIndex(@Qualifier("filmEngine") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            int repaired = filmStorage.recountLikes();
+            if (repaired > 0) {
+                log.warn("Пересчитано количество лайков у {} фильмов", repaired);
+            }
+            statsByFilm.clear();
+            ranking.clear();
+            rankingByGenre.clear();
+            rankingByRating.clear();
+            filmStorage.streamAll(film -> setStats(film.getId(), stats -> FilmStats.of(film, film.getLikeCount())));
+            log.info("Рейтинг фильмов построен, фильмов в рейтинге: {}", statsByFilm.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    public void addFilm(Film film) {
+        rebuildLock.readLock().lock();
+        try {
+            setStats(film.getId(), stats -> FilmStats.of(film, stats == null ? 0 : stats.likes()));
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void updateFilm(Film film) {
+        rebuildLock.readLock().lock();
+        try {
+            setStats(film.getId(), stats -> {
+                FilmStats current = stats == null ? FilmStats.EMPTY : stats;
+                long[] genreIds = film.getGenres() == null ? current.genreIds() : FilmStats.genreIds(film);
+                int year = film.getReleaseDate() == null ? current.year() : film.getReleaseDate().getYear();
+                return new FilmStats(current.likes(), current.ratingId(), year, genreIds);
+            });
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public int applyLikeChange(long filmId, IntSupplier change) {
+        rebuildLock.readLock().lock();
+        try {
+            int delta = change.getAsInt();
+            if (delta != 0) {
+                addLikes(filmId, delta);
+            }
+            return delta;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public Map<Long, Integer> applyLikeChanges(Supplier<Map<Long, Integer>> change) {
+        rebuildLock.readLock().lock();
+        try {
+            Map<Long, Integer> deltas = change.get();
+            deltas.forEach((filmId, delta) -> {
+                if (delta != 0) {
+                    addLikes(filmId, delta);
+                }
+            });
+            return deltas;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public List<Long> findTop(int count) {
+        rebuildLock.readLock().lock();
+        try {
+            Set<Long> filmIds = new LinkedHashSet<>();
+            for (Entry entry : ranking) {
+                if (filmIds.size() == count) {
+                    break;
+                }
+                filmIds.add(entry.filmId());
+            }
+            return new ArrayList<>(filmIds);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает пустой Optional, если подходящих фильмов слишком мало среди просмотренных и
+     * выборку дешевле сделать запросом к базе данных.
+     */
+    public Optional<List<Long>> findTop(int count, Long genreId, Long ratingId, Integer year) {
+        rebuildLock.readLock().lock();
+        try {
+            NavigableSet<Entry> source = ranking;
+            if (genreId != null) {
+                source = rankingByGenre.getOrDefault(genreId, new ConcurrentSkipListSet<>());
+            }
+            if (ratingId != null) {
+                NavigableSet<Entry> byRating = rankingByRating.getOrDefault(ratingId, new ConcurrentSkipListSet<>());
+                if (genreId == null || byRating.size() < source.size()) {
+                    source = byRating;
+                }
+            }
+            int maxScanned = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_SCANNED, (long) count * SCANNED_PER_RESULT));
+            int scanned = 0;
+            Set<Long> filmIds = new LinkedHashSet<>();
+            for (Entry entry : source) {
+                if (filmIds.size() == count) {
+                    break;
+                }
+                if (++scanned > maxScanned) {
+                    return Optional.empty();
+                }
+                FilmStats stats = statsByFilm.get(entry.filmId());
+                if (stats != null && stats.matches(genreId, ratingId, year)) {
+                    filmIds.add(entry.filmId());
+                }
+            }
+            return Optional.of(new ArrayList<>(filmIds));
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public int getLikes(long filmId) {
+        FilmStats stats = statsByFilm.get(filmId);
+        return stats == null ? 0 : stats.likes();
+    }
+
+    public List<Long> checkConsistency() {
+        rebuildLock.writeLock().lock();
+        try {
+            List<Long> mismatched = new ArrayList<>();
+            Map<Long, Integer> actualLikes = filmStorage.countLikesByFilm();
+            actualLikes.forEach((filmId, likes) -> {
+                if (likes != getLikes(filmId) || !statsByFilm.containsKey(filmId)) {
+                    mismatched.add(filmId);
+                }
+            });
+            for (Long filmId : statsByFilm.keySet()) {
+                if (!actualLikes.containsKey(filmId)) {
+                    mismatched.add(filmId);
+                }
+            }
+            if (!mismatched.isEmpty()) {
+                log.warn("Рейтинг фильмов расходится с хранилищем для фильмов с id={}", mismatched);
+            }
+            return mismatched;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private void addLikes(long filmId, int delta) {
+        setStats(filmId, stats -> {
+            FilmStats current = stats == null ? FilmStats.EMPTY : stats;
+            return new FilmStats(Math.max(0, current.likes() + delta), current.ratingId(), current.year(),
+                    current.genreIds());
+        });
+    }
+
+    private void setStats(long filmId, UnaryOperator<FilmStats> update) {
+        statsByFilm.compute(filmId, (id, stats) -> {
+            FilmStats updated = update.apply(stats);
+            Entry entry = new Entry(id, updated.likes());
+            ranking.add(entry);
+            if (updated.ratingId() != 0) {
+                rankingByRating.computeIfAbsent(updated.ratingId(), ratingId -> new ConcurrentSkipListSet<>(BY_LIKES))
+                        .add(entry);
+            }
+            for (long genreId : updated.genreIds()) {
+                rankingByGenre.computeIfAbsent(genreId, key -> new ConcurrentSkipListSet<>(BY_LIKES)).add(entry);
+            }
+            if (stats != null) {
+                removeEntry(new Entry(id, stats.likes()), stats, updated);
+            }
+            return updated;
+        });
+    }
+
+    private void removeEntry(Entry old, FilmStats stats, FilmStats updated) {
+        boolean sameLikes = old.likes() == updated.likes();
+        if (!sameLikes) {
+            ranking.remove(old);
+        }
+        if (stats.ratingId() != 0 && (!sameLikes || stats.ratingId() != updated.ratingId())) {
+            rankingByRating.get(stats.ratingId()).remove(old);
+        }
+        for (long genreId : stats.genreIds()) {
+            if (!sameLikes || !updated.hasGenre(genreId)) {
+                rankingByGenre.get(genreId).remove(old);
+            }
+        }
+    }
+
+    private record FilmStats(int likes, long ratingId, int year, long[] genreIds) {
+        static final FilmStats EMPTY = new FilmStats(0, 0, 0, new long[0]);
+
+        static FilmStats of(Film film, int likes) {
+            long ratingId = film.getMpa() == null ? 0 : film.getMpa().getId();
+            int year = film.getReleaseDate() == null ? 0 : film.getReleaseDate().getYear();
+            return new FilmStats(likes, ratingId, year, genreIds(film));
+        }
+
+        static long[] genreIds(Film film) {
+            if (film.getGenres() == null) {
+                return new long[0];
+            }
+            return film.getGenres().stream().mapToLong(Genre::getId).distinct().sorted().toArray();
+        }
+
+        boolean hasGenre(long genreId) {
+            return Arrays.binarySearch(genreIds, genreId) >= 0;
+        }
+
+        boolean matches(Long genreId, Long ratingId, Integer year) {
+            return (genreId == null || hasGenre(genreId))
+                    && (ratingId == null || this.ratingId == ratingId)
+                    && (year == null || this.year == year);
+        }
+    }
+
+    private record Entry(long filmId, int likes) {
+    }
+}
@@ -0,0 +1,255 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Рекомендации фильмов по лайкам пользователей с похожими вкусами; лайки хранятся в памяти отсортированными массивами.
+ * Массивы лайков обновляются при каждом лайке, а соседи ищутся на запрос перебором пользователей в отдельном пуле
+ * fork/join, чтобы не занимать общий пул и не зависеть от числа одновременных запросов.
+ */
+@Slf4j
+@Component
+public class FilmRecommender {
+    public static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_NEIGHBOURS = 50;
+    private static final int USERS_PER_TASK = 4096;
+
+    private final FilmStorage filmStorage;
+    private final ForkJoinPool pool;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final Object writeLock = new Object();
+    private volatile AtomicReferenceArray<int[]> likedFilms = new AtomicReferenceArray<>(0);
+
+    public FilmRecommender(@Qualifier("filmEngine") FilmStorage filmStorage,
+                           @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.filmStorage = filmStorage;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                            .newThread(forkJoinPool);
+                    thread.setName("recommendations-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            int[][][] loaded = {new int[1024][]};
+            int[] current = {-1};
+            int[][] films = {new int[16]};
+            int[] size = {0};
+            int[] total = {0};
+            filmStorage.streamLikes(like -> {
+                int userId = Math.toIntExact(like.getUserId());
+                if (userId != current[0]) {
+                    store(loaded, current[0], films[0], size[0]);
+                    current[0] = userId;
+                    size[0] = 0;
+                }
+                if (size[0] == films[0].length) {
+                    films[0] = Arrays.copyOf(films[0], size[0] * 2);
+                }
+                films[0][size[0]++] = Math.toIntExact(like.getFilmId());
+                total[0]++;
+            });
+            store(loaded, current[0], films[0], size[0]);
+            synchronized (writeLock) {
+                likedFilms = new AtomicReferenceArray<>(loaded[0]);
+            }
+            log.info("Лайки для рекомендаций загружены: {}", total[0]);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public int addLike(long filmId, long userId, IntSupplier write) {
+        rebuildLock.readLock().lock();
+        try {
+            int added = write.getAsInt();
+            synchronized (writeLock) {
+                setLike(Math.toIntExact(userId), Math.toIntExact(filmId), true);
+            }
+            return added;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public <T> T addLikes(Collection<Like> likes, Supplier<T> write) {
+        rebuildLock.readLock().lock();
+        try {
+            T result = write.get();
+            synchronized (writeLock) {
+                for (Like like : likes) {
+                    setLike(Math.toIntExact(like.getUserId()), Math.toIntExact(like.getFilmId()), true);
+                }
+            }
+            return result;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public int deleteLike(long filmId, long userId, IntSupplier write) {
+        rebuildLock.readLock().lock();
+        try {
+            int deleted = write.getAsInt();
+            synchronized (writeLock) {
+                setLike(Math.toIntExact(userId), Math.toIntExact(filmId), false);
+            }
+            return deleted;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public <T> T removeUser(long userId, Supplier<T> write) {
+        rebuildLock.readLock().lock();
+        try {
+            T result = write.get();
+            synchronized (writeLock) {
+                int id = Math.toIntExact(userId);
+                if (id < likedFilms.length()) {
+                    likedFilms.set(id, null);
+                }
+            }
+            return result;
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public int[] recommend(long userId, int limit) {
+        int id = Math.toIntExact(userId);
+        AtomicReferenceArray<int[]> snapshot = likedFilms;
+        int[] liked = SortedIntArrays.get(snapshot, id);
+        if (liked.length == 0) {
+            return new int[0];
+        }
+        long[] neighbours = pool.invoke(new NeighboursTask(snapshot, id, liked, 0, snapshot.length()));
+
+        IntCounter scores = new IntCounter();
+        for (long neighbour : neighbours) {
+            int overlap = (int) (neighbour >>> 32);
+            int[] films = SortedIntArrays.get(snapshot, Integer.MAX_VALUE - (int) neighbour);
+            for (int filmId : films) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.add(filmId, overlap);
+                }
+            }
+        }
+        return scores.top(limit);
+    }
+
+    private void setLike(int userId, int filmId, boolean liked) {
+        if (userId >= likedFilms.length()) {
+            if (!liked) {
+                return;
+            }
+            likedFilms = SortedIntArrays.copyOf(likedFilms, Math.max(userId + 1, likedFilms.length() * 2));
+        }
+        int[] films = likedFilms.get(userId);
+        likedFilms.set(userId, liked ? SortedIntArrays.insert(films, filmId) : SortedIntArrays.remove(films, filmId));
+    }
+
+    private static void store(int[][][] loaded, int userId, int[] films, int size) {
+        if (userId < 0) {
+            return;
+        }
+        if (userId >= loaded[0].length) {
+            loaded[0] = Arrays.copyOf(loaded[0], Math.max(userId + 1, loaded[0].length * 2));
+        }
+        loaded[0][userId] = Arrays.copyOf(films, size);
+    }
+
+    /**
+     * Ищет пользователей с наибольшим пересечением лайков в диапазоне id; результат — упакованные пары
+     * (пересечение, id) из не более чем {@link #MAX_NEIGHBOURS} элементов.
+     */
+    private static final class NeighboursTask extends RecursiveTask<long[]> {
+        private final AtomicReferenceArray<int[]> likedFilms;
+        private final int userId;
+        private final int[] liked;
+        private final int from;
+        private final int to;
+
+        NeighboursTask(AtomicReferenceArray<int[]> likedFilms, int userId, int[] liked, int from, int to) {
+            this.likedFilms = likedFilms;
+            this.userId = userId;
+            this.liked = liked;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > USERS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                NeighboursTask left = new NeighboursTask(likedFilms, userId, liked, from, middle);
+                left.fork();
+                long[] right = new NeighboursTask(likedFilms, userId, liked, middle, to).compute();
+                return merge(left.join(), right);
+            }
+            PriorityQueue<Long> top = new PriorityQueue<>(MAX_NEIGHBOURS + 1);
+            for (int other = from; other < to; other++) {
+                int[] films = likedFilms.get(other);
+                if (other == userId || films == null) {
+                    continue;
+                }
+                int overlap = SortedIntArrays.countCommon(liked, films);
+                if (overlap > 0 && overlap < films.length) {
+                    offer(top, ((long) overlap << 32) | (Integer.MAX_VALUE - other));
+                }
+            }
+            return toArray(top);
+        }
+
+        private static long[] merge(long[] first, long[] second) {
+            PriorityQueue<Long> top = new PriorityQueue<>(MAX_NEIGHBOURS + 1);
+            for (long neighbour : first) {
+                offer(top, neighbour);
+            }
+            for (long neighbour : second) {
+                offer(top, neighbour);
+            }
+            return toArray(top);
+        }
+
+        private static void offer(PriorityQueue<Long> top, long neighbour) {
+            top.add(neighbour);
+            if (top.size() > MAX_NEIGHBOURS) {
+                top.poll();
+            }
+        }
+
+        private static long[] toArray(PriorityQueue<Long> top) {
+            return top.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
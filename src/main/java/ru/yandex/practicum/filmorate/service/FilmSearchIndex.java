@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Полнотекстовый поиск фильмов по названию и описанию: обратный индекс от нормализованных слов к id фильмов.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final Map<Field, NavigableMap<String, Set<Long>>> postings = new EnumMap<>(Field.class);
+    private final ConcurrentMap<Long, Map<Field, Set<String>>> termsByFilm = new ConcurrentHashMap<>();
+
+    public FilmSearchIndex(@Qualifier("filmEngine") FilmStorage filmStorage, FilmPopularityIndex popularityIndex) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        for (Field field : Field.values()) {
+            postings.put(field, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        postings.values().forEach(Map::clear);
+        termsByFilm.clear();
+        filmStorage.streamAll(this::index);
+        log.info("Поисковый индекс фильмов построен, фильмов: {}", termsByFilm.size());
+    }
+
+    public void addFilm(Film film) {
+        updateFilm(film);
+    }
+
+    public synchronized void updateFilm(Film film) {
+        Map<Field, Set<String>> terms = termsByFilm.remove(film.getId());
+        if (terms != null) {
+            terms.forEach((field, fieldTerms) -> {
+                for (String term : fieldTerms) {
+                    postings.get(field).computeIfPresent(term, (key, filmIds) -> {
+                        filmIds.remove(film.getId());
+                        return filmIds.isEmpty() ? null : filmIds;
+                    });
+                }
+            });
+        }
+        index(film);
+    }
+
+    public List<Long> search(String query, Set<Field> fields, int count) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Integer> scores = null;
+        for (String token : tokens) {
+            Map<Long, Integer> tokenScores = new HashMap<>();
+            for (Field field : fields) {
+                NavigableMap<String, Set<Long>> matches = postings.get(field)
+                        .subMap(token, true, token + Character.MAX_VALUE, false);
+                for (Map.Entry<String, Set<Long>> match : matches.entrySet()) {
+                    int weight = match.getKey().length() == token.length() ? field.exactWeight : field.prefixWeight;
+                    for (Long filmId : match.getValue()) {
+                        tokenScores.merge(filmId, weight, Math::max);
+                    }
+                }
+            }
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((filmId, score) -> score + tokenScores.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(entry -> popularityIndex.getLikes(entry.getKey()), Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(normalize(c));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+
+    private void index(Film film) {
+        Map<Field, Set<String>> terms = new EnumMap<>(Field.class);
+        terms.put(Field.TITLE, tokenize(film.getName()));
+        terms.put(Field.DESCRIPTION, tokenize(film.getDescription()));
+        terms.forEach((field, fieldTerms) -> {
+            for (String term : fieldTerms) {
+                postings.get(field).computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(film.getId());
+            }
+        });
+        termsByFilm.put(film.getId(), terms);
+    }
+
+    public enum Field {
+        TITLE(4, 3),
+        DESCRIPTION(2, 1);
+
+        private final int exactWeight;
+        private final int prefixWeight;
+
+        Field(int exactWeight, int prefixWeight) {
+            this.exactWeight = exactWeight;
+            this.prefixWeight = prefixWeight;
+        }
+
+        public static Set<Field> parse(Collection<String> names) {
+            Set<Field> fields = EnumSet.noneOf(Field.class);
+            for (String name : names) {
+                fields.add(Field.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+            return fields;
+        }
+    }
+}
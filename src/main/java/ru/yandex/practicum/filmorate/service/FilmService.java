@@ -4,80 +4,180 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestBody;
 import ru.yandex.practicum.filmorate.exception.InvalidFilmInputException;
 import ru.yandex.practicum.filmorate.exception.InvalidUserInputException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class FilmService {
+    public static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    private static final int MAX_PAGE_SIZE = 1000;
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmRecommender recommender;
+    private final TrendingFilms trendingFilms;
+    private final FilmSearchIndex searchIndex;
 
     @Autowired
-    public FilmService(@Qualifier("filmDb") FilmStorage filmStorage, @Qualifier("userDb") UserStorage userStorage) {
+    public FilmService(@Qualifier("filmCached") FilmStorage filmStorage,
+                       @Qualifier("userCached") UserStorage userStorage,
+                       FilmPopularityIndex popularityIndex, FilmRecommender recommender, TrendingFilms trendingFilms,
+                       FilmSearchIndex searchIndex) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.popularityIndex = popularityIndex;
+        this.recommender = recommender;
+        this.trendingFilms = trendingFilms;
+        this.searchIndex = searchIndex;
     }
 
     public Collection<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    public Page<Film> findPage(long afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.warn("Параметр limit={} вне допустимого диапазона.", limit);
+            throw new InvalidUserInputException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return Page.of(filmStorage.findPage(afterId, limit + 1), limit, Film::getId);
+    }
+
     public Film create(@Valid @RequestBody Film film) {
-        if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
             throw new InvalidFilmInputException("Дата фильма не может быть раньше 1895.12.28");
         }
-        return filmStorage.create(film);
+        Film createdFilm = filmStorage.create(film);
+        popularityIndex.addFilm(createdFilm);
+        searchIndex.addFilm(createdFilm);
+        return createdFilm;
     }
 
     public Film update(@Valid @RequestBody Film newFilm) {
         if (newFilm.getId() == null) {
             throw new InvalidFilmInputException("Укажите id фильму.");
         }
-        return filmStorage.update(newFilm);
+        Film updatedFilm = filmStorage.update(newFilm);
+        popularityIndex.updateFilm(updatedFilm);
+        searchIndex.updateFilm(updatedFilm);
+        return updatedFilm;
     }
 
     public Film addLike(long filmId, long userId) {
-        Film film = filmStorage.findFilmById(filmId);
-        User user = userStorage.getUserById(userId)
-                .orElseThrow(() -> new NotFoundException("Нет пользователя с id = " + userId));
-        filmStorage.addLike(filmId, userId);
-        log.debug("User id={} поставил лайк фильму с id={}", user.getId(), film.getId());
-        return filmStorage.update(film);
+        try {
+            int added = popularityIndex.applyLikeChange(filmId,
+                    () -> recommender.addLike(filmId, userId, () -> filmStorage.addLike(filmId, userId)));
+            trendingFilms.recordLike(filmId, LocalDateTime.now(), added);
+        } catch (DataIntegrityViolationException e) {
+            filmStorage.findFilmById(filmId);
+            throw new NotFoundException("Нет пользователя с id = " + userId);
+        }
+        log.debug("User id={} поставил лайк фильму с id={}", userId, filmId);
+        return filmStorage.findFilmById(filmId);
     }
 
     public Film deleteLike(long filmId, long userId) {
-        Film film = filmStorage.findFilmById(filmId);
-        User user = userStorage.getUserById(userId)
-                .orElseThrow(() -> new NotFoundException("Нет пользователя с id =" + userId));
-        filmStorage.deleteLike(filmId, userId);
-        log.debug("User id={} удалил лайк у фильма с id={}", user.getId(), film.getId());
-        return filmStorage.update(film);
+        Like[] deletedLike = new Like[1];
+        int deleted = popularityIndex.applyLikeChange(filmId, () -> -recommender.deleteLike(filmId, userId, () -> {
+            deletedLike[0] = filmStorage.deleteLike(filmId, userId).orElse(null);
+            return deletedLike[0] == null ? 0 : 1;
+        }));
+        if (deleted == 0) {
+            userStorage.getUserById(userId)
+                    .orElseThrow(() -> new NotFoundException("Нет пользователя с id =" + userId));
+        } else {
+            trendingFilms.recordLike(filmId, deletedLike[0].getCreatedAt(), deleted);
+        }
+        log.debug("User id={} удалил лайк у фильма с id={}", userId, filmId);
+        return filmStorage.findFilmById(filmId);
     }
 
-    public List<Film> findBestByLikes(int count) {
+    public List<Film> findBestByLikes(int count, Long genreId, Long mpaId, Integer year) {
         if (count <= 0) {
             log.warn("Параметр count меньше нуля.");
             throw new InvalidUserInputException("Параметр count должен быть положительным числом");
         }
 
-        List<Film> allFilms = new ArrayList<>(filmStorage.findAll());
-        allFilms.sort(Comparator.comparingInt(film -> -filmStorage.findFilmLikes(film.getId()).size()));
+        List<Film> bestFilms;
+        if (genreId == null && mpaId == null && year == null) {
+            bestFilms = filmStorage.findFilmsByIds(popularityIndex.findTop(count));
+        } else {
+            bestFilms = popularityIndex.findTop(count, genreId, mpaId, year)
+                    .map(filmStorage::findFilmsByIds)
+                    .orElseGet(() -> filmStorage.findPopular(count, genreId, mpaId, year));
+        }
         log.debug("Возвращен список из лучших фильмов.");
-        return allFilms.subList(0, Math.min(count, allFilms.size()));
+        return bestFilms;
+    }
+
+    public List<Film> search(String query, List<String> by, int count) {
+        if (query == null || query.isBlank()) {
+            throw new InvalidUserInputException("Параметр query не может быть пустым");
+        }
+        if (count <= 0) {
+            log.warn("Параметр count меньше нуля.");
+            throw new InvalidUserInputException("Параметр count должен быть положительным числом");
+        }
+        Set<FilmSearchIndex.Field> fields;
+        try {
+            fields = FilmSearchIndex.Field.parse(by);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUserInputException("Параметр by может содержать только title и description");
+        }
+        return filmStorage.findFilmsByIds(searchIndex.search(query, fields, count));
+    }
+
+    public List<Film> findTrending(String window, int count) {
+        if (count <= 0 || count > TrendingFilms.MAX_COUNT) {
+            log.warn("Параметр count={} вне допустимого диапазона.", count);
+            throw new InvalidUserInputException("Параметр count должен быть от 1 до " + TrendingFilms.MAX_COUNT);
+        }
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window, ChronoUnit.HOURS);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUserInputException("Некорректный параметр window: " + window);
+        }
+        if (duration.toHours() < 1 || duration.compareTo(TrendingFilms.MAX_WINDOW) > 0) {
+            log.warn("Параметр window={} вне допустимого диапазона.", window);
+            throw new InvalidUserInputException("Параметр window должен быть от 1h до "
+                    + TrendingFilms.MAX_WINDOW.toDays() + "d");
+        }
+        return filmStorage.findFilmsByIds(trendingFilms.findTop(duration, count));
+    }
+
+    public List<Film> findRecommendations(long userId, int limit) {
+        if (limit <= 0 || limit > FilmRecommender.MAX_RECOMMENDATIONS) {
+            log.warn("Параметр limit={} вне допустимого диапазона.", limit);
+            throw new InvalidUserInputException("Параметр limit должен быть от 1 до "
+                    + FilmRecommender.MAX_RECOMMENDATIONS);
+        }
+        userStorage.getUserById(userId)
+                .orElseThrow(() -> new NotFoundException("Нет пользователя с id = " + userId));
+        List<Long> filmIds = Arrays.stream(recommender.recommend(userId, limit))
+                .mapToObj(Long::valueOf)
+                .toList();
+        return filmStorage.findFilmsByIds(filmIds);
     }
 
     public Film findById(long id) {
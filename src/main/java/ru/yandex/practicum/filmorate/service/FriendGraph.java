@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранятся отсортированные массивы id друзей и подписчиков.
+ * Запись в хранилище и изменение графа идут под блокировкой пользователя, чтобы конкурирующие добавление и удаление
+ * одной связи применялись к базе и к графу в одном порядке.
+ */
+@Slf4j
+@Component
+public class FriendGraph {
+    public static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_EXPANDED_FRIENDS = 1000;
+    private static final int MAX_CACHED_SUGGESTIONS = 10_000;
+    private static final int USER_LOCK_STRIPES = 64;
+
+    private final FriendStorage friendStorage;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final Object writeLock = new Object();
+    private final Lock[] userLocks = new Lock[USER_LOCK_STRIPES];
+    private volatile AtomicReferenceArray<int[]> friends = new AtomicReferenceArray<>(0);
+    private volatile AtomicReferenceArray<int[]> followers = new AtomicReferenceArray<>(0);
+    private final ConcurrentMap<Integer, int[]> suggestions = new ConcurrentHashMap<>();
+    private volatile long version;
+
+    public FriendGraph(@Qualifier("friendEngine") FriendStorage friendStorage) {
+        this.friendStorage = friendStorage;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            int[][] edges = {new int[1024], new int[1024]};
+            int[] size = new int[1];
+            int[] maxId = new int[1];
+            friendStorage.streamAll(friendship -> {
+                if (size[0] == edges[0].length) {
+                    edges[0] = Arrays.copyOf(edges[0], size[0] * 2);
+                    edges[1] = Arrays.copyOf(edges[1], size[0] * 2);
+                }
+                int userId = toInt(friendship.getUserId());
+                int friendId = toInt(friendship.getFriendId());
+                edges[0][size[0]] = userId;
+                edges[1][size[0]] = friendId;
+                size[0]++;
+                maxId[0] = Math.max(maxId[0], Math.max(userId, friendId));
+            });
+            synchronized (writeLock) {
+                friends = buildAdjacency(edges[0], edges[1], size[0], maxId[0]);
+                followers = buildAdjacency(edges[1], edges[0], size[0], maxId[0]);
+                version++;
+                suggestions.clear();
+            }
+            log.info("Граф друзей построен, связей: {}", size[0]);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    public void addFriend(long userId, long friendId, Runnable write) {
+        addFriends(List.of(Friendship.builder().userId(userId).friendId(friendId).build()), write);
+    }
+
+    public void addFriends(Collection<Friendship> friendships, Runnable write) {
+        rebuildLock.readLock().lock();
+        List<Lock> locks = lockUsers(friendships.stream().mapToLong(Friendship::getUserId));
+        try {
+            write.run();
+            synchronized (writeLock) {
+                for (Friendship friendship : friendships) {
+                    int userId = toInt(friendship.getUserId());
+                    int friendId = toInt(friendship.getFriendId());
+                    ensureCapacity(Math.max(userId, friendId));
+                    friends.set(userId, SortedIntArrays.insert(friends.get(userId), friendId));
+                    followers.set(friendId, SortedIntArrays.insert(followers.get(friendId), userId));
+                    invalidateSuggestions(userId);
+                }
+            }
+        } finally {
+            unlock(locks);
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void deleteFriend(long userId, long friendId, Runnable write) {
+        rebuildLock.readLock().lock();
+        List<Lock> locks = lockUsers(LongStream.of(userId));
+        try {
+            write.run();
+            synchronized (writeLock) {
+                int user = toInt(userId);
+                int friend = toInt(friendId);
+                if (Math.max(user, friend) < friends.length()) {
+                    friends.set(user, SortedIntArrays.remove(friends.get(user), friend));
+                    followers.set(friend, SortedIntArrays.remove(followers.get(friend), user));
+                    invalidateSuggestions(user);
+                }
+            }
+        } finally {
+            unlock(locks);
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public <T> T removeUser(long userId, Supplier<T> write) {
+        rebuildLock.readLock().lock();
+        List<Lock> locks = lockUsers(IntStream.range(0, USER_LOCK_STRIPES).asLongStream());
+        try {
+            T result = write.get();
+            synchronized (writeLock) {
+                int id = toInt(userId);
+                if (id >= friends.length()) {
+                    return result;
+                }
+                for (int friendId : SortedIntArrays.get(friends, id)) {
+                    followers.set(friendId, SortedIntArrays.remove(followers.get(friendId), id));
+                }
+                for (int followerId : SortedIntArrays.get(followers, id)) {
+                    friends.set(followerId, SortedIntArrays.remove(friends.get(followerId), id));
+                }
+                friends.set(id, null);
+                followers.set(id, null);
+                version++;
+                suggestions.clear();
+            }
+            return result;
+        } finally {
+            unlock(locks);
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public int[] getFriends(long userId) {
+        return SortedIntArrays.get(friends, toInt(userId)).clone();
+    }
+
+    public int[] getFollowers(long userId) {
+        return SortedIntArrays.get(followers, toInt(userId)).clone();
+    }
+
+    public int countFriends(long userId) {
+        return SortedIntArrays.get(friends, toInt(userId)).length;
+    }
+
+    public boolean isFriend(long userId, long friendId) {
+        return Arrays.binarySearch(SortedIntArrays.get(friends, toInt(userId)), toInt(friendId)) >= 0;
+    }
+
+    public int[] findCommonFriends(long userId, long otherId) {
+        return SortedIntArrays.intersect(SortedIntArrays.get(friends, toInt(userId)),
+                SortedIntArrays.get(friends, toInt(otherId)));
+    }
+
+    public int countCommonFriends(long userId, long otherId) {
+        return SortedIntArrays.countCommon(SortedIntArrays.get(friends, toInt(userId)),
+                SortedIntArrays.get(friends, toInt(otherId)));
+    }
+
+    public int[] suggestFriends(long userId, int limit) {
+        int id = toInt(userId);
+        int[] cached = suggestions.get(id);
+        if (cached == null) {
+            long computedAt = version;
+            cached = rankFriendsOfFriends(id);
+            synchronized (writeLock) {
+                if (version == computedAt) {
+                    if (suggestions.size() >= MAX_CACHED_SUGGESTIONS) {
+                        suggestions.clear();
+                    }
+                    suggestions.put(id, cached);
+                }
+            }
+        }
+        return Arrays.copyOf(cached, Math.min(limit, cached.length));
+    }
+
+    private int[] rankFriendsOfFriends(int userId) {
+        int[] userFriends = SortedIntArrays.get(friends, userId);
+        IntCounter mutualFriends = new IntCounter();
+        for (int i = 0; i < Math.min(userFriends.length, MAX_EXPANDED_FRIENDS); i++) {
+            int[] candidates = SortedIntArrays.get(friends, userFriends[i]);
+            for (int j = 0; j < Math.min(candidates.length, MAX_EXPANDED_FRIENDS); j++) {
+                int candidate = candidates[j];
+                if (candidate != userId && Arrays.binarySearch(userFriends, candidate) < 0) {
+                    mutualFriends.increment(candidate);
+                }
+            }
+        }
+
+        return mutualFriends.top(MAX_SUGGESTIONS);
+    }
+
+    private void invalidateSuggestions(int userId) {
+        version++;
+        suggestions.remove(userId);
+        for (int followerId : SortedIntArrays.get(followers, userId)) {
+            suggestions.remove(followerId);
+        }
+    }
+
+    /**
+     * Берёт блокировки пользователей по возрастанию номера, чтобы пачки с пересекающимися пользователями
+     * не заблокировали друг друга.
+     */
+    private List<Lock> lockUsers(LongStream userIds) {
+        List<Lock> locks = userIds.map(userId -> Math.floorMod(userId, USER_LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .mapToObj(stripe -> userLocks[(int) stripe])
+                .toList();
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    private static void unlock(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private void ensureCapacity(int maxId) {
+        if (maxId < friends.length()) {
+            return;
+        }
+        int length = Math.max(maxId + 1, friends.length() * 2);
+        friends = SortedIntArrays.copyOf(friends, length);
+        followers = SortedIntArrays.copyOf(followers, length);
+    }
+
+    private static AtomicReferenceArray<int[]> buildAdjacency(int[] from, int[] to, int size, int maxId) {
+        int[] degrees = new int[maxId + 1];
+        for (int i = 0; i < size; i++) {
+            degrees[from[i]]++;
+        }
+        int[][] lists = new int[maxId + 1][];
+        for (int id = 0; id <= maxId; id++) {
+            lists[id] = degrees[id] == 0 ? null : new int[degrees[id]];
+            degrees[id] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            lists[from[i]][degrees[from[i]]++] = to[i];
+        }
+        for (int[] list : lists) {
+            if (list != null) {
+                Arrays.sort(list);
+            }
+        }
+        return new AtomicReferenceArray<>(lists);
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -3,20 +3,20 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
 
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class GenreService {
-    private final GenresDbStorage genresDbStorage;
+    private final DictionaryCache dictionaryCache;
 
     public List<Genre> findAll() {
-        return genresDbStorage.findAll();
+        return dictionaryCache.findAllGenres();
     }
 
     public Genre findById(long id) {
-        return genresDbStorage.getGenreById(id);
+        return dictionaryCache.getGenre(id);
     }
 }
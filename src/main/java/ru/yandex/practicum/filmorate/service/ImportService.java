@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.InvalidUserInputException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка данных в формате NDJSON: по одной записи в строке, запись пачками через batchUpdate.
+ */
+@Service
+@Slf4j
+public class ImportService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FriendStorage friendStorage;
+    private final DictionaryCache dictionaryCache;
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendGraph friendGraph;
+    private final FilmRecommender recommender;
+    private final TrendingFilms trendingFilms;
+    private final FilmSearchIndex searchIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    @Autowired
+    public ImportService(@Qualifier("filmCached") FilmStorage filmStorage,
+                         @Qualifier("userCached") UserStorage userStorage,
+                         @Qualifier("friendEngine") FriendStorage friendStorage, DictionaryCache dictionaryCache,
+                         FilmPopularityIndex popularityIndex, FriendGraph friendGraph, FilmRecommender recommender,
+                         TrendingFilms trendingFilms, FilmSearchIndex searchIndex,
+                         ObjectMapper objectMapper, Validator validator,
+                         @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.friendStorage = friendStorage;
+        this.dictionaryCache = dictionaryCache;
+        this.popularityIndex = popularityIndex;
+        this.friendGraph = friendGraph;
+        this.recommender = recommender;
+        this.trendingFilms = trendingFilms;
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importFilms(InputStream in) throws IOException {
+        return importRecords(in, Film.class, this::saveFilms);
+    }
+
+    public ImportResult importUsers(InputStream in) throws IOException {
+        return importRecords(in, User.class, this::saveUsers);
+    }
+
+    public ImportResult importLikes(InputStream in) throws IOException {
+        return importRecords(in, Like.class, this::saveLikes);
+    }
+
+    public ImportResult importFriends(InputStream in) throws IOException {
+        return importRecords(in, Friendship.class, this::saveFriends);
+    }
+
+    private <T> ImportResult importRecords(InputStream in, Class<T> type, ChunkWriter<T> writer) throws IOException {
+        ImportResult result = new ImportResult();
+        List<Line<T>> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            T value;
+            try {
+                value = objectMapper.readValue(text, type);
+            } catch (JsonProcessingException e) {
+                result.reject(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(value);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<T> violation = violations.iterator().next();
+                result.reject(lineNumber, violation.getPropertyPath() + ": " + violation.getMessage());
+                continue;
+            }
+            chunk.add(new Line<>(lineNumber, value));
+            if (chunk.size() == chunkSize) {
+                writer.write(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writer.write(chunk, result);
+        }
+        log.debug("Импорт {}: принято {}, отклонено {}", type.getSimpleName(), result.getAccepted(),
+                result.getRejected());
+        return result;
+    }
+
+    private void saveFilms(List<Line<Film>> chunk, ImportResult result) {
+        List<Line<Film>> films = new ArrayList<>();
+        for (Line<Film> line : chunk) {
+            Film film = line.value();
+            if (film.getReleaseDate().isBefore(FilmService.MIN_RELEASE_DATE)) {
+                result.reject(line.number(), "Дата фильма не может быть раньше 1895.12.28");
+            } else if (film.getMpa() == null || film.getMpa().getId() == null) {
+                result.reject(line.number(), "Не указан рейтинг MPA");
+            } else {
+                try {
+                    dictionaryCache.getRating(film.getMpa().getId());
+                    if (film.getGenres() != null) {
+                        dictionaryCache.validateGenres(film.getGenres());
+                    }
+                    films.add(line);
+                } catch (NotFoundException e) {
+                    result.reject(line.number(), e.getMessage());
+                }
+            }
+        }
+        List<Film> created = insertChunk(films, filmStorage::createAll, result);
+        for (Film film : created) {
+            popularityIndex.addFilm(film);
+            searchIndex.addFilm(film);
+        }
+        result.accept(created.size());
+    }
+
+    private void saveUsers(List<Line<User>> chunk, ImportResult result) {
+        List<Line<User>> users = new ArrayList<>();
+        for (Line<User> line : chunk) {
+            try {
+                UserService.prepareNew(line.value());
+                users.add(line);
+            } catch (InvalidUserInputException e) {
+                result.reject(line.number(), e.getMessage());
+            }
+        }
+        result.accept(insertChunk(users, userStorage::createAll, result).size());
+    }
+
+    /**
+     * Пишет пачку одним batchUpdate; если база отвергла пачку, повторяет её построчно и отклоняет только
+     * те строки, которые не прошли ограничения таблицы, например лайк фильму, удалённому после проверки id.
+     */
+    private <T> List<T> insertChunk(List<Line<T>> lines, Function<List<T>, List<T>> insert, ImportResult result) {
+        if (lines.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return insert.apply(lines.stream().map(Line::value).collect(Collectors.toList()));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пачка не записана целиком, пишем построчно: {}", e.getMostSpecificCause().getMessage());
+        }
+        List<T> inserted = new ArrayList<>();
+        for (Line<T> line : lines) {
+            try {
+                inserted.addAll(insert.apply(List.of(line.value())));
+            } catch (DataIntegrityViolationException e) {
+                result.reject(line.number(), "Запись отклонена базой данных: "
+                        + e.getMostSpecificCause().getMessage());
+            }
+        }
+        return inserted;
+    }
+
+    private void saveLikes(List<Line<Like>> chunk, ImportResult result) {
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Line<Like> line : chunk) {
+            filmIds.add(line.value().getFilmId());
+            userIds.add(line.value().getUserId());
+        }
+        Set<Long> existingFilmIds = filmStorage.findExistingIds(filmIds);
+        Set<Long> existingUserIds = userStorage.findExistingIds(userIds);
+
+        List<Line<Like>> likes = new ArrayList<>();
+        for (Line<Like> line : chunk) {
+            Like like = line.value();
+            if (!existingFilmIds.contains(like.getFilmId())) {
+                result.reject(line.number(), "Нет фильма с id=" + like.getFilmId());
+            } else if (!existingUserIds.contains(like.getUserId())) {
+                result.reject(line.number(), "Нет пользователя с id = " + like.getUserId());
+            } else {
+                likes.add(line);
+            }
+        }
+        result.accept(insertChunk(likes, this::addLikes, result).size());
+    }
+
+    private List<Like> addLikes(List<Like> likes) {
+        Map<Long, Integer> added = popularityIndex
+                .applyLikeChanges(() -> recommender.addLikes(likes, () -> filmStorage.addLikes(likes)));
+        LocalDateTime likedAt = LocalDateTime.now();
+        added.forEach((filmId, count) -> trendingFilms.recordLike(filmId, likedAt, count));
+        return likes;
+    }
+
+    private void saveFriends(List<Line<Friendship>> chunk, ImportResult result) {
+        Set<Long> userIds = new HashSet<>();
+        for (Line<Friendship> line : chunk) {
+            userIds.add(line.value().getUserId());
+            userIds.add(line.value().getFriendId());
+        }
+        Set<Long> existingUserIds = userStorage.findExistingIds(userIds);
+
+        List<Line<Friendship>> friendships = new ArrayList<>();
+        for (Line<Friendship> line : chunk) {
+            Friendship friendship = line.value();
+            if (friendship.getUserId().equals(friendship.getFriendId())) {
+                result.reject(line.number(), "Нельзя добавить самого себя в друзья.");
+            } else if (!existingUserIds.contains(friendship.getUserId())) {
+                result.reject(line.number(), "Пользователь с id=" + friendship.getUserId() + " не найден.");
+            } else if (!existingUserIds.contains(friendship.getFriendId())) {
+                result.reject(line.number(), "Пользователь с id=" + friendship.getFriendId() + " не найден.");
+            } else {
+                friendships.add(line);
+            }
+        }
+        result.accept(insertChunk(friendships, this::addFriends, result).size());
+    }
+
+    private List<Friendship> addFriends(List<Friendship> friendships) {
+        friendGraph.addFriends(friendships, () -> friendStorage.addFriends(friendships));
+        return friendships;
+    }
+
+    private record Line<T>(long number, T value) {
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<Line<T>> chunk, ImportResult result);
+    }
+}
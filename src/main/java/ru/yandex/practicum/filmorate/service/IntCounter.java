@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.PriorityQueue;
+
+/**
+ * Счётчик по int-ключам с открытой адресацией и выбором лучших ключей через ограниченную кучу.
+ */
+final class IntCounter {
+    private int[] keys = new int[64];
+    private int[] counts = new int[64];
+    private int size;
+
+    void increment(int key) {
+        add(key, 1);
+    }
+
+    void add(int key, int amount) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        int idx = slot(key);
+        if (counts[idx] == 0) {
+            keys[idx] = key;
+            size++;
+        }
+        counts[idx] += amount;
+    }
+
+    void forEach(IntBinaryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] > 0) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    int[] top(int limit) {
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        forEach((key, count) -> {
+            top.add(((long) count << 32) | (Integer.MAX_VALUE - key));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        int[] ranked = new int[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL);
+        }
+        return ranked;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] > 0) {
+                int idx = slot(oldKeys[i]);
+                keys[idx] = oldKeys[i];
+                counts[idx] = oldCounts[i];
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int idx = (hash ^ (hash >>> 16)) & mask;
+        while (counts[idx] > 0 && keys[idx] != key) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    @FunctionalInterface
+    interface IntBinaryConsumer {
+        void accept(int first, int second);
+    }
+}
@@ -3,20 +3,20 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Rating;
-import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
 
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class MpaService {
-    private final RatingDbStorage ratingDbStorage;
+    private final DictionaryCache dictionaryCache;
 
     public Rating getById(long id) {
-        return ratingDbStorage.getRatingById(id);
+        return dictionaryCache.getRating(id);
     }
 
     public List<Rating> findAll() {
-        return ratingDbStorage.findAll();
+        return dictionaryCache.findAllRatings();
     }
 }
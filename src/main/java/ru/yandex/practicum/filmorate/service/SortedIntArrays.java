@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Операции над отсортированными массивами id, которые не изменяются после публикации.
+ */
+final class SortedIntArrays {
+
+    private static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    static int[] get(AtomicReferenceArray<int[]> arrays, int id) {
+        if (id < 0 || id >= arrays.length()) {
+            return EMPTY;
+        }
+        int[] ids = arrays.get(id);
+        return ids == null ? EMPTY : ids;
+    }
+
+    static AtomicReferenceArray<int[]> copyOf(AtomicReferenceArray<int[]> arrays, int length) {
+        AtomicReferenceArray<int[]> copy = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < arrays.length(); i++) {
+            copy.set(i, arrays.get(i));
+        }
+        return copy;
+    }
+
+    static int[] insert(int[] ids, int id) {
+        if (ids == null) {
+            return new int[]{id};
+        }
+        int idx = Arrays.binarySearch(ids, id);
+        if (idx >= 0) {
+            return ids;
+        }
+        int pos = -idx - 1;
+        int[] updated = new int[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        updated[pos] = id;
+        System.arraycopy(ids, pos, updated, pos + 1, ids.length - pos);
+        return updated;
+    }
+
+    static int[] remove(int[] ids, int id) {
+        if (ids == null) {
+            return null;
+        }
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        int[] updated = new int[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, pos);
+        System.arraycopy(ids, pos + 1, updated, pos, ids.length - pos - 1);
+        return updated;
+    }
+
+    static int[] intersect(int[] first, int[] second) {
+        int[] common = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == common.length ? common : Arrays.copyOf(common, size);
+    }
+
+    static int countCommon(int[] first, int[] second) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+}
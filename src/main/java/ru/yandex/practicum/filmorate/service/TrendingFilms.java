@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Лайки фильмов за последние часы: по каждому фильму хранится кольцо почасовых счётчиков.
+ */
+@Slf4j
+@Component
+public class TrendingFilms {
+    public static final Duration MAX_WINDOW = Duration.ofDays(7);
+    public static final int MAX_COUNT = 1000;
+    private static final int BUCKETS = (int) MAX_WINDOW.toHours();
+
+    private final FilmStorage filmStorage;
+    private final ConcurrentMap<Long, HourlyCounter> counters = new ConcurrentHashMap<>();
+
+    public TrendingFilms(@Qualifier("filmEngine") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        counters.clear();
+        filmStorage.streamLikesSince(LocalDateTime.now().minus(MAX_WINDOW),
+                like -> recordLike(like.getFilmId(), like.getCreatedAt(), 1));
+        log.info("Счётчики популярности за {} ч. построены, фильмов: {}", BUCKETS, counters.size());
+    }
+
+    public void recordLike(long filmId, LocalDateTime likedAt, int delta) {
+        if (likedAt == null || delta == 0) {
+            return;
+        }
+        long hour = toHour(likedAt);
+        if (hour <= toHour(LocalDateTime.now()) - BUCKETS) {
+            return;
+        }
+        counters.compute(filmId, (id, counter) -> {
+            HourlyCounter updated = counter == null ? new HourlyCounter() : counter;
+            updated.add(hour, delta);
+            return updated;
+        });
+    }
+
+    public List<Long> findTop(Duration window, int count) {
+        long toHour = toHour(LocalDateTime.now());
+        long fromHour = toHour - Math.min(BUCKETS, Math.max(1, window.toHours())) + 1;
+        long expiredHour = toHour - BUCKETS;
+        Comparator<Map.Entry<Long, Integer>> byLikes = Map.Entry.<Long, Integer>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(Math.min(count, counters.size()) + 1, byLikes);
+        counters.forEach((filmId, counter) -> {
+            if (counter.isExpired(expiredHour)) {
+                counters.computeIfPresent(filmId, (id, current) -> current.isExpired(expiredHour) ? null : current);
+                return;
+            }
+            int likes = counter.sum(fromHour, toHour);
+            if (likes > 0) {
+                top.add(Map.entry(filmId, likes));
+                if (top.size() > count) {
+                    top.poll();
+                }
+            }
+        });
+        List<Long> filmIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            filmIds.add(0, top.poll().getKey());
+        }
+        return filmIds;
+    }
+
+    private static long toHour(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static final class HourlyCounter {
+        private final long[] hours = new long[BUCKETS];
+        private final int[] likes = new int[BUCKETS];
+        private long lastHour;
+
+        synchronized void add(long hour, int delta) {
+            int idx = (int) (hour % BUCKETS);
+            if (hours[idx] != hour) {
+                if (delta < 0 || hours[idx] > hour) {
+                    return;
+                }
+                hours[idx] = hour;
+                likes[idx] = 0;
+            }
+            likes[idx] = Math.max(0, likes[idx] + delta);
+            lastHour = Math.max(lastHour, hour);
+        }
+
+        synchronized int sum(long fromHour, long toHour) {
+            int sum = 0;
+            for (int idx = 0; idx < BUCKETS; idx++) {
+                if (hours[idx] >= fromHour && hours[idx] <= toHour) {
+                    sum += likes[idx];
+                }
+            }
+            return sum;
+        }
+
+        synchronized boolean isExpired(long beforeHour) {
+            return lastHour <= beforeHour;
+        }
+    }
+}
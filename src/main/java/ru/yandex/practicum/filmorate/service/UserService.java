@@ -8,37 +8,55 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestBody;
 import ru.yandex.practicum.filmorate.exception.InvalidUserInputException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
-import ru.yandex.practicum.filmorate.storage.db.FriendDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 1000;
     private final UserStorage userStorage;
-    private final FriendDbStorage friendStorage;
+    private final FriendStorage friendStorage;
+    private final FriendGraph friendGraph;
+    private final FilmRecommender recommender;
 
     @Autowired
-    public UserService(@Qualifier(value = "userDb") UserStorage userStorage, FriendDbStorage friendStorage) {
+    public UserService(@Qualifier(value = "userCached") UserStorage userStorage,
+                       @Qualifier("friendEngine") FriendStorage friendStorage,
+                       FriendGraph friendGraph, FilmRecommender recommender) {
         this.userStorage = userStorage;
         this.friendStorage = friendStorage;
+        this.friendGraph = friendGraph;
+        this.recommender = recommender;
     }
 
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
-    public User create(@Valid @RequestBody User user) {
-        if (user.getBirthday().isAfter(LocalDate.now())) {
-            throw new InvalidUserInputException("Дата рождения не может быть позже сегодняшнего дня.");
+    public Page<User> findPage(long afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            log.warn("Параметр limit={} вне допустимого диапазона.", limit);
+            throw new InvalidUserInputException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
         }
+        return Page.of(userStorage.findPage(afterId, limit + 1), limit, User::getId);
+    }
+
+    public User create(@Valid @RequestBody User user) {
+        prepareNew(user);
         return userStorage.create(user);
     }
 
@@ -47,7 +65,7 @@ public class UserService {
     }
 
     public User delete(long id) {
-        return userStorage.delete(id);
+        return friendGraph.removeUser(id, () -> recommender.removeUser(id, () -> userStorage.delete(id)));
     }
 
     public User getUser(long id) {
@@ -72,7 +90,7 @@ public class UserService {
         User user = getUserByIdOrThrow(userId);
         getUserByIdOrThrow(friendId);
 
-        friendStorage.addFriend(userId, friendId);
+        friendGraph.addFriend(userId, friendId, () -> friendStorage.addFriend(userId, friendId));
         log.debug("Пользователь с id={} добавил в друзья пользователя с id={}", userId, friendId);
         return user;
     }
@@ -84,7 +102,7 @@ public class UserService {
         }
         User user = getUserByIdOrThrow(userId);
         getUserByIdOrThrow(friendId);
-        friendStorage.deleteFriend(userId, friendId);
+        friendGraph.deleteFriend(userId, friendId, () -> friendStorage.deleteFriend(userId, friendId));
 
         log.debug("User id={} удалил из друзей User id={}", userId, friendId);
         return user;
@@ -96,23 +114,59 @@ public class UserService {
     }
 
     public List<User> findAllCommonFriends(long userId, long friendId) {
-        User user = getUserByIdOrThrow(userId);
-        User friend = getUserByIdOrThrow(friendId);
-
-        List<User> userFriends = friendStorage.getUserFriends(userId);
-        List<User> friendFriends = friendStorage.getUserFriends(friendId);
-
-        Set<Long> friendIds1 = userFriends.stream()
-                .map(User::getId)
-                .collect(Collectors.toSet());
-        Set<Long> friendIds2 = friendFriends.stream()
-                .map(User::getId)
-                .collect(Collectors.toSet());
-
-        friendIds1.retainAll(friendIds2);
-        log.debug("Возвращены совместные друзья пользователей с id={} и id={}", user.getId(), friend.getId());
-        return friendIds1.stream()
-                .map(this::getUserByIdOrThrow)
+        List<Long> ids = new ArrayList<>();
+        ids.add(userId);
+        ids.add(friendId);
+        for (int commonId : friendGraph.findCommonFriends(userId, friendId)) {
+            ids.add((long) commonId);
+        }
+        List<User> users = userStorage.findUsersByIds(ids);
+        checkUsersExist(users.stream().map(User::getId).toList(), userId, friendId);
+        log.debug("Возвращены совместные друзья пользователей с id={} и id={}", userId, friendId);
+        return users.stream()
+                .filter(user -> user.getId() != userId && user.getId() != friendId)
+                .toList();
+    }
+
+    public long countCommonFriends(long userId, long friendId) {
+        checkUsersExist(userStorage.findExistingIds(List.of(userId, friendId)), userId, friendId);
+        return friendGraph.countCommonFriends(userId, friendId);
+    }
+
+    public List<User> suggestFriends(long userId, int limit) {
+        if (limit <= 0 || limit > FriendGraph.MAX_SUGGESTIONS) {
+            log.warn("Параметр limit={} вне допустимого диапазона.", limit);
+            throw new InvalidUserInputException("Параметр limit должен быть от 1 до " + FriendGraph.MAX_SUGGESTIONS);
+        }
+        int[] suggestedIds = friendGraph.suggestFriends(userId, limit);
+        List<Long> ids = new ArrayList<>();
+        ids.add(userId);
+        for (int suggestedId : suggestedIds) {
+            ids.add((long) suggestedId);
+        }
+        Map<Long, User> usersById = userStorage.findUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        checkUsersExist(usersById.keySet(), userId);
+        return Arrays.stream(suggestedIds)
+                .mapToObj(id -> usersById.get((long) id))
+                .filter(Objects::nonNull)
                 .toList();
     }
-}
\ No newline at end of file
+
+    private void checkUsersExist(Collection<Long> existingIds, long... userIds) {
+        for (long userId : userIds) {
+            if (!existingIds.contains(userId)) {
+                throw new NotFoundException("Пользователь с id=" + userId + " не найден.");
+            }
+        }
+    }
+
+    static void prepareNew(User user) {
+        if (user.getBirthday().isAfter(LocalDate.now())) {
+            throw new InvalidUserInputException("Дата рождения не может быть позже сегодняшнего дня.");
+        }
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+    }
+}
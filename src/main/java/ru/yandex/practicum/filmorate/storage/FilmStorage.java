@@ -3,24 +3,55 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Like;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    List<Film> findPage(long afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     Film update(Film film);
 
     Film delete(long id);
 
     Film findFilmById(long id);
 
+    List<Film> findPopular(int count);
+
+    List<Film> findPopular(int count, Long genreId, Long mpaId, Integer year);
+
+    List<Film> findFilmsByIds(List<Long> ids);
+
     List<Like> findFilmLikes(long id);
 
-    void addLike(long filmId, long userId);
+    Optional<Like> findLike(long filmId, long userId);
+
+    void streamLikes(Consumer<Like> consumer);
+
+    void streamLikesSince(LocalDateTime since, Consumer<Like> consumer);
+
+    Map<Long, Integer> countLikesByFilm();
+
+    int recountLikes();
+
+    int addLike(long filmId, long userId);
+
+    Map<Long, Integer> addLikes(List<Like> likes);
 
-    void deleteLike(long filmId, long userId);
+    Optional<Like> deleteLike(long filmId, long userId);
 }
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface FriendStorage {
+
+    void addFriend(long userId, long friendId);
+
+    void addFriends(List<Friendship> friendships);
+
+    void streamAll(Consumer<Friendship> consumer);
+
+    List<User> getUserFriends(long userId);
+
+    void deleteFriend(long userId, long friendId);
+}
@@ -3,17 +3,30 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     Collection<User> findAll();
 
+    List<User> findPage(long afterId, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     User create(User user);
 
+    List<User> createAll(List<User> users);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     User update(User user);
 
     User delete(long id);
 
     Optional<User> getUserById(long id);
+
+    List<User> findUsersByIds(Collection<Long> ids);
 }
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+final class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    static void bindSingleFlight(MeterRegistry registry, String name, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("filmorate.singleflight.calls", singleFlight, SingleFlight::getCalls)
+                .description("Вызовы загрузки по id")
+                .tag("storage", name)
+                .register(registry);
+        FunctionCounter.builder("filmorate.singleflight.collapsed", singleFlight, SingleFlight::getCollapsed)
+                .description("Вызовы, получившие результат уже выполняющегося запроса")
+                .tag("storage", name)
+                .register(registry);
+    }
+
+    static void bindCache(MeterRegistry registry, String name, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        FunctionTimer.builder("cache.load.duration", cache,
+                        c -> c.stats().loadCount(), c -> c.stats().totalLoadTime(), TimeUnit.NANOSECONDS)
+                .description("Время загрузки отсутствующих в кэше значений")
+                .tag("cache", name)
+                .register(registry);
+    }
+}
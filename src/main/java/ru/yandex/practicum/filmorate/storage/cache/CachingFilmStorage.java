@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный по размеру кэш фильмов по id поверх хранилища; записи сбрасываются при изменении фильма и его лайков.
+ */
+@Component("filmCached")
+public class CachingFilmStorage implements FilmStorage, MeterBinder {
+    private final FilmStorage delegate;
+    private final Cache<Long, Film> films;
+
+    public CachingFilmStorage(@Qualifier("filmCoalescing") FilmStorage delegate,
+                              @Value("${filmorate.cache.films.max-size:10000}") long maxSize,
+                              @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Film findFilmById(long id) {
+        return films.get(id, delegate::findFilmById);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            films.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film delete(long id) {
+        try {
+            return delegate.delete(id);
+        } finally {
+            films.invalidate(id);
+        }
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return delegate.findPopular(count);
+    }
+
+    @Override
+    public List<Film> findPopular(int count, Long genreId, Long mpaId, Integer year) {
+        return delegate.findPopular(count, genreId, mpaId, year);
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        return delegate.findFilmsByIds(ids);
+    }
+
+    @Override
+    public List<Like> findFilmLikes(long id) {
+        return delegate.findFilmLikes(id);
+    }
+
+    @Override
+    public Optional<Like> findLike(long filmId, long userId) {
+        return delegate.findLike(filmId, userId);
+    }
+
+    @Override
+    public void streamLikes(Consumer<Like> consumer) {
+        delegate.streamLikes(consumer);
+    }
+
+    @Override
+    public void streamLikesSince(LocalDateTime since, Consumer<Like> consumer) {
+        delegate.streamLikesSince(since, consumer);
+    }
+
+    @Override
+    public Map<Long, Integer> countLikesByFilm() {
+        return delegate.countLikesByFilm();
+    }
+
+    @Override
+    public int recountLikes() {
+        return delegate.recountLikes();
+    }
+
+    @Override
+    public int addLike(long filmId, long userId) {
+        int added = delegate.addLike(filmId, userId);
+        if (added > 0) {
+            films.invalidate(filmId);
+        }
+        return added;
+    }
+
+    @Override
+    public Map<Long, Integer> addLikes(List<Like> likes) {
+        Map<Long, Integer> added = delegate.addLikes(likes);
+        films.invalidateAll(added.keySet());
+        return added;
+    }
+
+    @Override
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        Optional<Like> deleted = delegate.deleteLike(filmId, userId);
+        if (deleted.isPresent()) {
+            films.invalidate(filmId);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMetrics.bindCache(registry, "films", films);
+    }
+}
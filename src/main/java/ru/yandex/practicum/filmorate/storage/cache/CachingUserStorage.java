@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный по размеру кэш пользователей по id поверх хранилища; отсутствующие пользователи не кэшируются.
+ */
+@Component("userCached")
+public class CachingUserStorage implements UserStorage, MeterBinder {
+    private final UserStorage delegate;
+    private final Cache<Long, User> users;
+
+    public CachingUserStorage(@Qualifier("userCoalescing") UserStorage delegate,
+                              @Value("${filmorate.cache.users.max-size:10000}") long maxSize,
+                              @Value("${filmorate.cache.users.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<User> getUserById(long id) {
+        return Optional.ofNullable(users.get(id, key -> delegate.getUserById(key).orElse(null)));
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            users.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public User delete(long id) {
+        try {
+            return delegate.delete(id);
+        } finally {
+            users.invalidate(id);
+        }
+    }
+
+    @Override
+    public List<User> findUsersByIds(Collection<Long> ids) {
+        return delegate.findUsersByIds(ids);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMetrics.bindCache(registry, "users", users);
+    }
+}
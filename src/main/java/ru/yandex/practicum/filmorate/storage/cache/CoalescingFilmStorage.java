@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище фильмов, в котором одновременные запросы одного фильма по id выполняются одним обращением к базе.
+ */
+@Component("filmCoalescing")
+public class CoalescingFilmStorage implements FilmStorage, MeterBinder {
+    private final FilmStorage delegate;
+    private final SingleFlight<Long, Film> findById = new SingleFlight<>();
+
+    public CoalescingFilmStorage(@Qualifier("filmEngine") FilmStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Film findFilmById(long id) {
+        return findById.execute(id, () -> delegate.findFilmById(id));
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public Film update(Film film) {
+        Film updated = delegate.update(film);
+        findById.forget(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Film delete(long id) {
+        Film deleted = delegate.delete(id);
+        findById.forget(id);
+        return deleted;
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return delegate.findPopular(count);
+    }
+
+    @Override
+    public List<Film> findPopular(int count, Long genreId, Long mpaId, Integer year) {
+        return delegate.findPopular(count, genreId, mpaId, year);
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        return delegate.findFilmsByIds(ids);
+    }
+
+    @Override
+    public List<Like> findFilmLikes(long id) {
+        return delegate.findFilmLikes(id);
+    }
+
+    @Override
+    public Optional<Like> findLike(long filmId, long userId) {
+        return delegate.findLike(filmId, userId);
+    }
+
+    @Override
+    public void streamLikes(Consumer<Like> consumer) {
+        delegate.streamLikes(consumer);
+    }
+
+    @Override
+    public void streamLikesSince(LocalDateTime since, Consumer<Like> consumer) {
+        delegate.streamLikesSince(since, consumer);
+    }
+
+    @Override
+    public Map<Long, Integer> countLikesByFilm() {
+        return delegate.countLikesByFilm();
+    }
+
+    @Override
+    public int recountLikes() {
+        return delegate.recountLikes();
+    }
+
+    @Override
+    public int addLike(long filmId, long userId) {
+        int changed = delegate.addLike(filmId, userId);
+        findById.forget(filmId);
+        return changed;
+    }
+
+    @Override
+    public Map<Long, Integer> addLikes(List<Like> likes) {
+        Map<Long, Integer> added = delegate.addLikes(likes);
+        added.keySet().forEach(findById::forget);
+        return added;
+    }
+
+    @Override
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        Optional<Like> deleted = delegate.deleteLike(filmId, userId);
+        findById.forget(filmId);
+        return deleted;
+    }
+
+    public long getCalls() {
+        return findById.getCalls();
+    }
+
+    public long getCollapsed() {
+        return findById.getCollapsed();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMetrics.bindSingleFlight(registry, "film", findById);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище пользователей, в котором одновременные запросы одного пользователя по id выполняются одним обращением к базе.
+ */
+@Component("userCoalescing")
+public class CoalescingUserStorage implements UserStorage, MeterBinder {
+    private final UserStorage delegate;
+    private final SingleFlight<Long, Optional<User>> getById = new SingleFlight<>();
+
+    public CoalescingUserStorage(@Qualifier("userEngine") UserStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<User> getUserById(long id) {
+        return getById.execute(id, () -> delegate.getUserById(id));
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public User update(User user) {
+        User updated = delegate.update(user);
+        getById.forget(user.getId());
+        return updated;
+    }
+
+    @Override
+    public User delete(long id) {
+        User deleted = delegate.delete(id);
+        getById.forget(id);
+        return deleted;
+    }
+
+    @Override
+    public List<User> findUsersByIds(Collection<Long> ids) {
+        return delegate.findUsersByIds(ids);
+    }
+
+    public long getCalls() {
+        return getById.getCalls();
+    }
+
+    public long getCollapsed() {
+        return getById.getCollapsed();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMetrics.bindSingleFlight(registry, "user", getById);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Вставка пачки строк одним batchUpdate с возвратом сгенерированных id в порядке строк.
+ */
+final class BatchInsert {
+    private BatchInsert() {
+    }
+
+    static List<Long> insertAll(JdbcTemplate jdbc, String query, List<Object[]> rows) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = rows.get(i);
+                        for (int idx = 0; idx < params.length; idx++) {
+                            ps.setObject(idx + 1, params[idx]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keyHolder);
+
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        if (ids.size() != rows.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return ids;
+    }
+}
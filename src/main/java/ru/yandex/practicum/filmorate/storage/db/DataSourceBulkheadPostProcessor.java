@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Оборачивает DataSource в {@link BulkheadDataSource}. По умолчанию число разрешений равно размеру пула Hikari
+ * (до старта пула незаданный размер равен -1, тогда берётся значение Hikari по умолчанию — 10). Пул ищется и под
+ * другими обёртками DataSource, например под {@link MeteredDataSource}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.jdbc.bulkhead.enabled", havingValue = "true")
+public class DataSourceBulkheadPostProcessor implements BeanPostProcessor {
+    private static final int DEFAULT_MAX_CONCURRENT = 10;
+
+    private final int maxConcurrent;
+    private final Duration timeout;
+
+    public DataSourceBulkheadPostProcessor(@Value("${filmorate.jdbc.bulkhead.max-concurrent:0}") int maxConcurrent,
+                                           @Value("${filmorate.jdbc.bulkhead.timeout:5s}") Duration timeout) {
+        this.maxConcurrent = maxConcurrent;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+            return bean;
+        }
+        int permits = maxConcurrent;
+        HikariDataSource hikari = findHikari(dataSource);
+        if (permits <= 0 && hikari != null) {
+            permits = hikari.getMaximumPoolSize();
+        }
+        if (permits <= 0) {
+            permits = DEFAULT_MAX_CONCURRENT;
+        }
+        log.info("Одновременных соединений с базой не больше {}, ожидание до {}", permits, timeout);
+        return new BulkheadDataSource(dataSource, permits, timeout);
+    }
+
+    private static HikariDataSource findHikari(DataSource dataSource) {
+        DataSource current = dataSource;
+        while (current instanceof DelegatingDataSource delegating) {
+            current = delegating.getTargetDataSource();
+        }
+        return current instanceof HikariDataSource hikari ? hikari : null;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает DataSource в {@link MeteredDataSource}. Реестр метрик берётся при первом запросе, чтобы не создавать
+ * его раньше DataSource. Срабатывает раньше {@link DataSourceBulkheadPostProcessor}, чтобы ограничитель оставался
+ * внешней обёрткой и его метрики регистрировались.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.jdbc.metrics.enabled", havingValue = "true")
+public class DataSourceMetricsPostProcessor implements BeanPostProcessor, Ordered {
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public DataSourceMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof MeteredDataSource) {
+            return bean;
+        }
+        return new MeteredDataSource(dataSource, registry::getIfAvailable);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Кэш справочников жанров и рейтингов MPA. Значения лежат в массивах, индекс в которых совпадает с id. Загруженный
+ * справочник считается полным: неизвестный id сразу даёт NotFoundException, перечитывается он только в {@link #refresh}.
+ */
+@Slf4j
+@Component
+public class DictionaryCache {
+    private final GenresDbStorage genresDbStorage;
+    private final RatingDbStorage ratingDbStorage;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Snapshot snapshot;
+
+    public DictionaryCache(GenresDbStorage genresDbStorage, RatingDbStorage ratingDbStorage) {
+        this.genresDbStorage = genresDbStorage;
+        this.ratingDbStorage = ratingDbStorage;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Genre> genres = List.copyOf(genresDbStorage.findAll());
+        List<Rating> ratings = List.copyOf(ratingDbStorage.findAll());
+        snapshot = new Snapshot(indexById(genres, Genre::getId, Genre[]::new), genres,
+                indexById(ratings, Rating::getId, Rating[]::new), ratings);
+        log.debug("Загружены справочники: жанров {}, рейтингов {}", genres.size(), ratings.size());
+    }
+
+    public void refresh() {
+        load();
+    }
+
+    public List<Genre> findAllGenres() {
+        return getSnapshot().genres();
+    }
+
+    public List<Rating> findAllRatings() {
+        return getSnapshot().ratings();
+    }
+
+    public Genre getGenre(long id) {
+        Genre[] genresById = getSnapshot().genresById();
+        if (id > 0 && id < genresById.length && genresById[(int) id] != null) {
+            hits.increment();
+            return genresById[(int) id];
+        }
+        misses.increment();
+        throw new NotFoundException("Нету жанра с id=" + id);
+    }
+
+    public Rating getRating(long id) {
+        Rating[] ratingsById = getSnapshot().ratingsById();
+        if (id > 0 && id < ratingsById.length && ratingsById[(int) id] != null) {
+            hits.increment();
+            return ratingsById[(int) id];
+        }
+        misses.increment();
+        throw new NotFoundException("Рейтинг с id=" + id + " не найден.");
+    }
+
+    public Set<Long> validateGenres(List<Genre> genres) {
+        Set<Long> genreIds = new LinkedHashSet<>();
+        for (Genre genre : genres) {
+            genreIds.add(getGenre(genre.getId()).getId());
+        }
+        return genreIds;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static <T> T[] indexById(List<T> values, Function<T, Long> idGetter, IntFunction<T[]> arrayFactory) {
+        int maxId = values.stream()
+                .mapToInt(value -> idGetter.apply(value).intValue())
+                .max()
+                .orElse(0);
+        T[] valuesById = arrayFactory.apply(maxId + 1);
+        for (T value : values) {
+            valuesById[idGetter.apply(value).intValue()] = value;
+        }
+        return valuesById;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(Genre[] genresById, List<Genre> genres, Rating[] ratingsById, List<Rating> ratings) {
+    }
+}
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
@@ -17,63 +20,145 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Component("filmDb")
+@Qualifier("filmEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "db", matchIfMissing = true)
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbc;
     private final FilmRowMapper filmRowMapper;
     private final GenresDbStorage genresDbStorage;
-    private final RatingDbStorage ratingDbStorage;
+    private final DictionaryCache dictionaryCache;
     private final LikesDbStorage likesDbStorage;
-    private static final String FIND_ALL = "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
-            "f.rating_id, r.name AS rating_name " +
+    private final Optional<LikeWriteBehind> writeBehind;
+    private static final String FIND_FILMS = "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
+            "f.like_count, f.rating_id, r.name AS rating_name " +
             "FROM films AS f " +
             "INNER JOIN ratings AS r ON f.rating_id = r.rating_id ";
+    private static final String FIND_ALL = FIND_FILMS + "ORDER BY f.id";
+    private static final String FIND_PAGE = FIND_FILMS + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
     private static final String CREATE_FILM =
             "INSERT INTO films(name, description, release_date, duration, rating_id) " + "VALUES (?, ?, ?, ?, ?);";
-    private static final String FIND_BY_ID =
+    private static final String FIND_FILMS_WITH_GENRES =
             "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
-                    "f.rating_id, r.name AS rating_name, " +
+                    "f.like_count, f.rating_id, r.name AS rating_name, " +
                     "g.genre_id, gr.name AS genre_name " +
                     "FROM films AS f " +
                     "INNER JOIN ratings AS r ON f.rating_id = r.rating_id " +
                     "LEFT JOIN film_genres AS g ON f.id = g.film_id " +
-                    "LEFT JOIN genres AS gr ON g.genre_id = gr.genre_id " +
-                    "WHERE f.id = ?";
+                    "LEFT JOIN genres AS gr ON g.genre_id = gr.genre_id ";
+    private static final String FIND_BY_ID = FIND_FILMS_WITH_GENRES + "WHERE f.id = ? ORDER BY g.genre_id";
+    private static final String STREAM_ALL = FIND_FILMS_WITH_GENRES + "ORDER BY f.id, g.genre_id";
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FIND_POPULAR = FIND_FILMS + "WHERE TRUE %s ORDER BY f.like_count DESC, f.id LIMIT ?";
+    private static final String GENRE_FILTER =
+            "AND EXISTS (SELECT 1 FROM film_genres AS fg WHERE fg.film_id = f.id AND fg.genre_id = ?) ";
+    private static final String RATING_FILTER = "AND f.rating_id = ? ";
+    private static final String YEAR_FILTER = "AND f.release_date >= ? AND f.release_date < ? ";
+    private static final String FIND_BY_IDS = FIND_FILMS + "WHERE f.id IN (%s)";
+    private static final String FIND_EXISTING_IDS = "SELECT id FROM films WHERE id IN (%s)";
     private static final String UPDATE =
             "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? WHERE id = ?;";
 
 
     @Override
     public Collection<Film> findAll() {
-        return jdbc.query(FIND_ALL, (rs, rowNum) -> getFilmFromResultSet(rs));
+        return withPendingLikes(() -> setGenres(jdbc.query(FIND_ALL, filmRowMapper),
+                genresDbStorage.findAllFilmsGenres()));
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        Film[] current = new Film[1];
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection
+                    .prepareStatement(STREAM_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            if (current[0] == null || current[0].getId() != rs.getLong("id")) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = filmRowMapper.mapRow(rs, rs.getRow());
+                writeBehind.ifPresent(queue -> queue.applyPending(current[0]));
+            }
+            addGenre(current[0], rs);
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return withPendingLikes(() -> fillGenres(jdbc.query(FIND_PAGE, filmRowMapper, afterId, limit)));
     }
 
     @Override
     public Film create(Film film) {
-        Rating rating = ratingDbStorage.getRatingById(film.getMpa().getId());
+        Rating rating = dictionaryCache.getRating(film.getMpa().getId());
+        Set<Long> genreIds = film.getGenres() != null ? dictionaryCache.validateGenres(film.getGenres()) : Set.of();
         Long id = insert(CREATE_FILM,
                 film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), rating.getId());
         film.setId(id);
-        if (film.getGenres() != null) {
-            genresDbStorage.saveFilmGenres(film.getId(), film.getGenres());
+        if (!genreIds.isEmpty()) {
+            genresDbStorage.saveFilmGenres(film.getId(), genreIds);
         }
 
         return film;
     }
 
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            rows.add(new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
+                    film.getMpa().getId()});
+        }
+        List<Long> ids = BatchInsert.insertAll(jdbc, CREATE_FILM, rows);
+
+        Map<Long, Collection<Long>> filmsGenreIds = new HashMap<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+                filmsGenreIds.put(film.getId(), dictionaryCache.validateGenres(film.getGenres()));
+            }
+        }
+        genresDbStorage.saveAllFilmGenres(filmsGenreIds);
+        return films;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbc.queryForList(String.format(FIND_EXISTING_IDS, placeholders), Long.class,
+                ids.toArray()));
+    }
+
     @Override
     public Film update(Film film) {
         findFilmById(film.getId());
+        if (film.getMpa() != null) {
+            dictionaryCache.getRating(film.getMpa().getId());
+        }
+        Set<Long> genreIds = film.getGenres() != null ? dictionaryCache.validateGenres(film.getGenres()) : null;
         jdbc.update(UPDATE,
                 film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getId());
-        if (film.getGenres() != null) {
-            genresDbStorage.saveFilmGenres(film.getId(), film.getGenres());
-        }
-        if (film.getMpa() != null) {
-            ratingDbStorage.getRatingById(film.getMpa().getId());
+        if (genreIds != null) {
+            genresDbStorage.updateFilmGenres(film.getId(), genreIds);
         }
         return film;
     }
@@ -85,7 +170,15 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Film findFilmById(long id) {
-        List<Film> partialFilms = jdbc.query(FIND_BY_ID, filmRowMapper, id);
+        return withPendingLikes(() -> List.of(loadFilm(id))).get(0);
+    }
+
+    private Film loadFilm(long id) {
+        List<Film> partialFilms = jdbc.query(FIND_BY_ID, (rs, rowNum) -> {
+            Film film = filmRowMapper.mapRow(rs, rowNum);
+            addGenre(film, rs);
+            return film;
+        }, id);
 
         if (partialFilms.isEmpty()) {
             throw new NotFoundException("Нет фильма с id=" + id);
@@ -101,6 +194,74 @@ public class FilmDbStorage implements FilmStorage {
         return mergedFilm;
     }
 
+    @Override
+    public List<Film> findPopular(int count) {
+        return findPopular(count, null, null, null);
+    }
+
+    @Override
+    public List<Film> findPopular(int count, Long genreId, Long mpaId, Integer year) {
+        StringBuilder filters = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            filters.append(GENRE_FILTER);
+            params.add(genreId);
+        }
+        if (mpaId != null) {
+            filters.append(RATING_FILTER);
+            params.add(mpaId);
+        }
+        if (year != null) {
+            filters.append(YEAR_FILTER);
+            params.add(LocalDate.of(year, 1, 1));
+            params.add(LocalDate.of(year + 1, 1, 1));
+        }
+        params.add(count);
+        return withPendingLikes(() -> fillGenres(jdbc.query(String.format(FIND_POPULAR, filters), filmRowMapper,
+                params.toArray())));
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Film> films = withPendingLikes(() -> fillGenres(jdbc.query(String.format(FIND_BY_IDS, placeholders),
+                filmRowMapper, ids.toArray())));
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private <T extends Iterable<Film>> T withPendingLikes(Supplier<T> query) {
+        return writeBehind.isPresent() ? writeBehind.get().read(query) : query.get();
+    }
+
+    private void addGenre(Film film, ResultSet rs) throws SQLException {
+        long genreId = rs.getLong("genre_id");
+        if (!rs.wasNull()) {
+            film.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+        }
+    }
+
+    private List<Film> fillGenres(List<Film> films) {
+        return setGenres(films, genresDbStorage.findFilmsGenres(films.stream()
+                .map(Film::getId)
+                .toList()));
+    }
+
+    private List<Film> setGenres(List<Film> films, Map<Long, List<Genre>> filmsGenres) {
+        for (Film film : films) {
+            film.setGenres(filmsGenres.getOrDefault(film.getId(), new ArrayList<>()));
+        }
+        return films;
+    }
 
     private long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
@@ -123,26 +284,55 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public List<Like> findFilmLikes(long id) {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
         return likesDbStorage.findFilmLikes(id);
     }
 
     @Override
-    public void addLike(long filmId, long userId) {
-        likesDbStorage.addLike(filmId, userId);
+    public Optional<Like> findLike(long filmId, long userId) {
+        return writeBehind.isPresent() ? writeBehind.get().findLike(filmId, userId)
+                : likesDbStorage.findLike(filmId, userId);
     }
 
     @Override
-    public void deleteLike(long filmId, long userId) {
-        likesDbStorage.deleteLike(filmId, userId);
+    public void streamLikes(Consumer<Like> consumer) {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        likesDbStorage.streamAll(consumer);
     }
 
-    private Film getFilmFromResultSet(ResultSet resultSet) throws SQLException {
-        return Film.builder()
-                .id(resultSet.getLong("id"))
-                .name(resultSet.getString("name"))
-                .description(resultSet.getString("description"))
-                .releaseDate(resultSet.getDate("release_date").toLocalDate())
-                .duration(resultSet.getInt("duration"))
-                .build();
+    @Override
+    public void streamLikesSince(LocalDateTime since, Consumer<Like> consumer) {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        likesDbStorage.streamSince(since, consumer);
+    }
+
+    @Override
+    public Map<Long, Integer> countLikesByFilm() {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        return likesDbStorage.countLikesByFilm();
+    }
+
+    @Override
+    public int recountLikes() {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        return likesDbStorage.recountLikes();
+    }
+
+    @Override
+    public int addLike(long filmId, long userId) {
+        return writeBehind.isPresent() ? writeBehind.get().addLike(filmId, userId)
+                : likesDbStorage.addLike(filmId, userId);
+    }
+
+    @Override
+    public Map<Long, Integer> addLikes(List<Like> likes) {
+        writeBehind.ifPresent(LikeWriteBehind::flush);
+        return likesDbStorage.addLikes(likes);
+    }
+
+    @Override
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        return writeBehind.isPresent() ? writeBehind.get().deleteLike(filmId, userId)
+                : likesDbStorage.deleteLike(filmId, userId);
     }
 }
@@ -1,35 +1,107 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
-@Component
+@Slf4j
+@Component("friendDb")
+@Qualifier("friendEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "db", matchIfMissing = true)
 @RequiredArgsConstructor
-public class FriendDbStorage {
+public class FriendDbStorage implements FriendStorage {
     private final JdbcTemplate jdbc;
     private final RowMapper<User> userRowMapper;
-    private static final String ADD_FRIEND_QUERY = "INSERT INTO friends (user_id, friend_id) VALUES (?, ?)";
+    private static final String ADD_FRIEND_QUERY = "INSERT INTO friends (user_id, friend_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)";
     private static final String FIND_USER_FRIENDS = "SELECT u.id, u.name, u.login, u.email, u.birthday " +
             "FROM friends AS f " +
             "INNER JOIN users AS u ON u.id = f.friend_id " +
             "WHERE f.user_id = ? " +
             "ORDER BY u.id";
+    private static final String STREAM_ALL = "SELECT user_id, friend_id FROM friends ORDER BY user_id, friend_id";
+    private static final int STREAM_FETCH_SIZE = 1000;
     private static final String DELETE_USER_FRIEND = "DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
-    private static final String FIND_COMMON_FRIENDS = "";
+    private static final String FIND_COMMON_FRIENDS = "SELECT u.id, u.name, u.login, u.email, u.birthday " +
+            "FROM friends AS f1 " +
+            "INNER JOIN friends AS f2 ON f2.friend_id = f1.friend_id AND f2.user_id = ? " +
+            "INNER JOIN users AS u ON u.id = f1.friend_id " +
+            "WHERE f1.user_id = ? " +
+            "ORDER BY u.id";
+    private static final String COUNT_COMMON_FRIENDS = "SELECT COUNT(*) " +
+            "FROM friends AS f1 " +
+            "INNER JOIN friends AS f2 ON f2.friend_id = f1.friend_id AND f2.user_id = ? " +
+            "WHERE f1.user_id = ?";
 
+    @Override
     public void addFriend(long userId, long friendId) {
-        jdbc.update(ADD_FRIEND_QUERY, userId, friendId);
+        try {
+            jdbc.update(ADD_FRIEND_QUERY, userId, friendId, userId, friendId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Пользователь с id={} уже добавил в друзья пользователя с id={}", userId, friendId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void addFriends(List<Friendship> friendships) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Friendship friendship : friendships) {
+            batchArgs.add(new Object[]{friendship.getUserId(), friendship.getFriendId(),
+                    friendship.getUserId(), friendship.getFriendId()});
+        }
+        jdbc.batchUpdate(ADD_FRIEND_QUERY, batchArgs);
+    }
+
+    @Override
+    public void streamAll(Consumer<Friendship> consumer) {
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection
+                    .prepareStatement(STREAM_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(Friendship.builder()
+                    .userId(rs.getLong("user_id"))
+                    .friendId(rs.getLong("friend_id"))
+                    .build());
+        });
     }
 
+    @Override
     public List<User> getUserFriends(long userId) {
         return jdbc.query(FIND_USER_FRIENDS, userRowMapper, userId);
     }
 
+    /**
+     * Общие друзья одним запросом к базе, по возрастанию id. Сервис отвечает из графа друзей в памяти, а этот запрос
+     * служит для сравнения в UserServiceBenchmark.
+     */
+    public List<User> findCommonFriends(long userId, long otherId) {
+        return jdbc.query(FIND_COMMON_FRIENDS, userRowMapper, otherId, userId);
+    }
+
+    public long countCommonFriends(long userId, long otherId) {
+        Long count = jdbc.queryForObject(COUNT_COMMON_FRIENDS, Long.class, otherId, userId);
+        return count == null ? 0 : count;
+    }
+
+    @Override
     public void deleteFriend(long userId, long friendId) {
         jdbc.update(DELETE_USER_FRIEND, userId, friendId);
     }
@@ -3,11 +3,21 @@ package ru.yandex.practicum.filmorate.storage.db;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 @RequiredArgsConstructor
@@ -15,25 +25,89 @@ public class GenresDbStorage {
     private final JdbcTemplate jdbc;
     private final GenreRowMapper genreRowMapper;
     private static final String SAVE_FILM_GENRES = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?);";
-    private static final String FIND_GENRE_BY_ID = "SELECT * FROM genres WHERE genre_id = ?;";
+    private static final String DELETE_FILM_GENRES = "DELETE FROM film_genres WHERE film_id = ?";
+    private static final String DELETE_FILM_GENRE = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+    private static final String FIND_FILM_GENRE_IDS = "SELECT genre_id FROM film_genres WHERE film_id = ?";
     private static final String FIND_ALL = "SELECT * FROM genres";
+    private static final String FIND_FILMS_GENRES_BASE = "SELECT fg.film_id, g.genre_id, g.name " +
+            "FROM film_genres AS fg " +
+            "INNER JOIN genres AS g ON fg.genre_id = g.genre_id ";
+    private static final String FIND_ALL_FILMS_GENRES = FIND_FILMS_GENRES_BASE + "ORDER BY fg.film_id, g.genre_id";
+    private static final String FIND_FILMS_GENRES = FIND_FILMS_GENRES_BASE +
+            "WHERE fg.film_id IN (%s) " +
+            "ORDER BY fg.film_id, g.genre_id";
 
-    public void saveFilmGenres(long filmId, List<Genre> genres) {
-        jdbc.update("DELETE FROM film_genres WHERE film_id = ?", filmId);
-        for (Genre genre : genres) {
-            getGenreById(genre.getId());
-            jdbc.update(SAVE_FILM_GENRES, filmId, genre.getId());
+    @Transactional
+    public void saveFilmGenres(long filmId, Collection<Long> genreIds) {
+        jdbc.update(DELETE_FILM_GENRES, filmId);
+        batchUpdate(SAVE_FILM_GENRES, filmId, genreIds);
+    }
+
+    public void saveAllFilmGenres(Map<Long, Collection<Long>> filmsGenreIds) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        filmsGenreIds.forEach((filmId, genreIds) -> {
+            for (Long genreId : genreIds) {
+                batchArgs.add(new Object[]{filmId, genreId});
+            }
+        });
+        if (!batchArgs.isEmpty()) {
+            jdbc.batchUpdate(SAVE_FILM_GENRES, batchArgs);
+        }
+    }
+
+    @Transactional
+    public void updateFilmGenres(long filmId, Collection<Long> genreIds) {
+        Set<Long> currentGenreIds = new HashSet<>(jdbc.queryForList(FIND_FILM_GENRE_IDS, Long.class, filmId));
+
+        Set<Long> removedGenreIds = new HashSet<>(currentGenreIds);
+        removedGenreIds.removeAll(genreIds);
+        Set<Long> addedGenreIds = new LinkedHashSet<>(genreIds);
+        addedGenreIds.removeAll(currentGenreIds);
+
+        batchUpdate(DELETE_FILM_GENRE, filmId, removedGenreIds);
+        batchUpdate(SAVE_FILM_GENRES, filmId, addedGenreIds);
+    }
+
+    public Map<Long, List<Genre>> findFilmsGenres(Collection<Long> filmIds) {
+        Map<Long, List<Genre>> filmsGenres = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return filmsGenres;
         }
+        String placeholders = String.join(", ", Collections.nCopies(filmIds.size(), "?"));
+        jdbc.query(String.format(FIND_FILMS_GENRES, placeholders), rs -> {
+            addFilmGenre(filmsGenres, rs);
+        }, filmIds.toArray());
+        return filmsGenres;
     }
 
-    public Genre getGenreById(long id) {
-        return jdbc.query(FIND_GENRE_BY_ID, genreRowMapper, id)
-                .stream()
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("Нету жанра с id=" + id));
+    public Map<Long, List<Genre>> findAllFilmsGenres() {
+        Map<Long, List<Genre>> filmsGenres = new HashMap<>();
+        jdbc.query(FIND_ALL_FILMS_GENRES, rs -> {
+            addFilmGenre(filmsGenres, rs);
+        });
+        return filmsGenres;
     }
 
     public List<Genre> findAll() {
         return jdbc.query(FIND_ALL, genreRowMapper);
     }
+
+    private void addFilmGenre(Map<Long, List<Genre>> filmsGenres, ResultSet rs) throws SQLException {
+        List<Genre> genres = filmsGenres.computeIfAbsent(rs.getLong("film_id"), id -> new ArrayList<>());
+        Genre genre = genreRowMapper.mapRow(rs, genres.size());
+        if (!genres.contains(genre)) {
+            genres.add(genre);
+        }
+    }
+
+    private void batchUpdate(String query, long filmId, Collection<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Long genreId : genreIds) {
+            batchArgs.add(new Object[]{filmId, genreId});
+        }
+        jdbc.batchUpdate(query, batchArgs);
+    }
 }
@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Отложенная запись лайков: изменения копятся в памяти, схлопываясь по паре (фильм, пользователь), и пишутся в базу
+ * пачками раз в flush-interval или по набору batch-size событий. Запись пачки идёт под блокировкой записи, поэтому
+ * чтение под {@link #read} видит либо ещё не записанные изменения, либо уже записанные, но не оба сразу.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class LikeWriteBehind implements MeterBinder {
+    private final LikesDbStorage likesDbStorage;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final int capacity;
+    private final ConcurrentMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Integer> pendingByFilm = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder flushed = new LongAdder();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "likes-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LikeWriteBehind(LikesDbStorage likesDbStorage,
+                           @Value("${filmorate.likes.write-behind.flush-interval:50ms}") Duration flushInterval,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity) {
+        this.likesDbStorage = likesDbStorage;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.capacity = Math.max(capacity, batchSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков: пачками по {}, не реже раза в {}, в очереди не больше {}",
+                batchSize, flushInterval, capacity);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(flushInterval.toMillis() + 5000, TimeUnit.MILLISECONDS);
+        int remaining = pending.size();
+        flush();
+        log.info("Отложенная запись лайков остановлена, дописано изменений: {}", remaining);
+    }
+
+    public int addLike(long filmId, long userId) {
+        return change(filmId, userId, true) != null ? 1 : 0;
+    }
+
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        return Optional.ofNullable(change(filmId, userId, false));
+    }
+
+    public Optional<Like> findLike(long filmId, long userId) {
+        flushLock.readLock().lock();
+        try {
+            Pending current = pending.get(new Key(filmId, userId));
+            if (current == null) {
+                return likesDbStorage.findLike(filmId, userId);
+            }
+            if (!current.liked()) {
+                return Optional.empty();
+            }
+            return Optional.of(current.toLike(filmId, userId));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет чтение фильмов так, чтобы пачка не записалась посередине, и добавляет к счётчикам лайков ещё не
+     * записанные изменения.
+     */
+    public <T extends Iterable<Film>> T read(Supplier<T> query) {
+        flushLock.readLock().lock();
+        try {
+            T films = query.get();
+            for (Film film : films) {
+                applyPending(film);
+            }
+            return films;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    public void applyPending(Film film) {
+        Integer delta = pendingByFilm.get(film.getId());
+        if (delta != null) {
+            film.setLikeCount(Math.max(0, film.getLikeCount() + delta));
+        }
+    }
+
+    public void flush() {
+        while (flushBatch() > 0) {
+            log.trace("Записана пачка лайков, в очереди осталось {}", pending.size());
+        }
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.write-behind.pending", pending, Map::size)
+                .description("Изменения лайков, ещё не записанные в базу")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.write-behind.flushed", flushed, LongAdder::sum)
+                .description("Изменения лайков, записанные в базу пачками")
+                .register(registry);
+    }
+
+    /**
+     * Ставит или снимает лайк в очереди. Возвращает изменённый лайк: для снятия — с временем, когда он был
+     * поставлен, или null, если состояние не изменилось. После {@link #close} фонового потока уже нет, и изменение
+     * записывается сразу.
+     */
+    private Like change(long filmId, long userId, boolean like) {
+        if (pending.size() >= capacity) {
+            flushBatch();
+        }
+        Like changed;
+        flushLock.readLock().lock();
+        try {
+            Key key = new Key(filmId, userId);
+            Pending current = pending.get(key);
+            boolean base;
+            LocalDateTime storedAt = null;
+            if (current != null) {
+                base = current.base();
+            } else if (like) {
+                int state = likesDbStorage.findLikeState(filmId, userId);
+                if (state < 0) {
+                    throw new DataIntegrityViolationException("Нет фильма с id=" + filmId
+                            + " или пользователя с id=" + userId);
+                }
+                base = state > 0;
+            } else {
+                Optional<Like> stored = likesDbStorage.findLike(filmId, userId);
+                base = stored.isPresent();
+                storedAt = stored.map(Like::getCreatedAt).orElse(null);
+            }
+            LocalDateTime baseLikedAt = storedAt;
+            Like[] result = new Like[1];
+            pending.compute(key, (k, entry) -> {
+                boolean liked = entry == null ? base : entry.liked();
+                if (liked == like) {
+                    return entry;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime likedAt = like ? now : entry == null ? baseLikedAt : entry.likedAt();
+                result[0] = Like.builder()
+                        .filmId(filmId)
+                        .userId(userId)
+                        .createdAt(likedAt)
+                        .build();
+                return base == like ? null : new Pending(base, like, like ? now : null);
+            });
+            changed = result[0];
+            if (changed != null) {
+                pendingByFilm.merge(filmId, like ? 1 : -1, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        if (flusher.isShutdown()) {
+            flush();
+        } else if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+                flush();
+            }
+        }
+        return changed;
+    }
+
+    private int flushBatch() {
+        flushLock.writeLock().lock();
+        try {
+            List<Key> keys = new ArrayList<>();
+            List<Like> added = new ArrayList<>();
+            List<Like> deleted = new ArrayList<>();
+            Iterator<Map.Entry<Key, Pending>> entries = pending.entrySet().iterator();
+            while (entries.hasNext() && keys.size() < batchSize) {
+                Map.Entry<Key, Pending> entry = entries.next();
+                Key key = entry.getKey();
+                keys.add(key);
+                Like like = entry.getValue().toLike(key.filmId(), key.userId());
+                (entry.getValue().liked() ? added : deleted).add(like);
+            }
+            if (keys.isEmpty()) {
+                return 0;
+            }
+            write(added, deleted);
+            for (Key key : keys) {
+                Pending written = pending.remove(key);
+                int delta = written.liked() ? -1 : 1;
+                pendingByFilm.merge(key.filmId(), delta, (a, b) -> a + b == 0 ? null : a + b);
+            }
+            flushed.add(keys.size());
+            return keys.size();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void write(List<Like> added, List<Like> deleted) {
+        try {
+            likesDbStorage.applyLikes(added, deleted);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пачка лайков не записана целиком, пишем по одному: {}", e.getMostSpecificCause().getMessage());
+            for (Like like : added) {
+                try {
+                    likesDbStorage.applyLikes(List.of(like), List.of());
+                } catch (DataIntegrityViolationException ex) {
+                    log.warn("Лайк пользователя id={} фильму id={} отброшен: фильм или пользователь удалён",
+                            like.getUserId(), like.getFilmId());
+                }
+            }
+            likesDbStorage.applyLikes(List.of(), deleted);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать лайки, повторим позже, в очереди {}", pending.size(), e);
+        }
+    }
+
+    private record Key(long filmId, long userId) {
+    }
+
+    private record Pending(boolean base, boolean liked, LocalDateTime likedAt) {
+        Like toLike(long filmId, long userId) {
+            return Like.builder()
+                    .filmId(filmId)
+                    .userId(userId)
+                    .createdAt(likedAt)
+                    .build();
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
 import ru.yandex.practicum.filmorate.model.Like;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Component
 @RequiredArgsConstructor
@@ -14,18 +24,164 @@ public class LikesDbStorage {
     private final JdbcTemplate jdbc;
     private final LikeRowMapper likeRowMapper;
     private static final String FIND_LIKES = "SELECT * FROM likes WHERE film_id = ?;";
-    private static final String CREATE = "INSERT INTO likes (film_id, user_id) VALUES (?, ?) ";
+    private static final String FIND_LIKE = "SELECT * FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String STREAM_SINCE = "SELECT * FROM likes WHERE created_at >= ?";
+    private static final String STREAM_ALL = "SELECT film_id, user_id FROM likes ORDER BY user_id, film_id";
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String CREATE = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String CREATE_AT = "INSERT INTO likes (film_id, user_id, created_at) SELECT ?, ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
     private static final String DELETE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?;";
+    private static final String DELETE_RETURNING =
+            "SELECT * FROM OLD TABLE (DELETE FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String LIKE_STATE = "SELECT CASE " +
+            "WHEN NOT EXISTS (SELECT 1 FROM films WHERE id = ?) OR NOT EXISTS (SELECT 1 FROM users WHERE id = ?) " +
+            "THEN -1 " +
+            "WHEN EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?) THEN 1 ELSE 0 END";
+    private static final String CHANGE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
+    private static final String RECOUNT_LIKES = "UPDATE films AS f " +
+            "SET like_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id) " +
+            "WHERE like_count <> (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id)";
+    private static final String COUNT_LIKES = "SELECT f.id AS film_id, COUNT(l.id) AS likes_count " +
+            "FROM films AS f LEFT JOIN likes AS l ON f.id = l.film_id GROUP BY f.id";
 
     public List<Like> findFilmLikes(long filmId) {
         return jdbc.query(FIND_LIKES, likeRowMapper, filmId);
     }
 
-    public void addLike(long filmId, long userId) {
-        jdbc.update(CREATE, filmId, userId);
+    public Optional<Like> findLike(long filmId, long userId) {
+        return jdbc.query(FIND_LIKE, likeRowMapper, filmId, userId).stream().findFirst();
     }
 
-    public void deleteLike(long filmId, long userId) {
-        jdbc.update(DELETE, filmId, userId);
+    /**
+     * Возвращает 1, если лайк есть, 0 — если нет, и -1, если нет фильма или пользователя.
+     */
+    public int findLikeState(long filmId, long userId) {
+        Integer state = jdbc.queryForObject(LIKE_STATE, Integer.class, filmId, userId, filmId, userId);
+        return state == null ? -1 : state;
+    }
+
+    public void streamSince(LocalDateTime since, Consumer<Like> consumer) {
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection
+                    .prepareStatement(STREAM_SINCE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setObject(1, since);
+            return ps;
+        }, rs -> {
+            consumer.accept(likeRowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    public void streamAll(Consumer<Like> consumer) {
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection
+                    .prepareStatement(STREAM_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(Like.builder()
+                    .filmId(rs.getLong("film_id"))
+                    .userId(rs.getLong("user_id"))
+                    .build());
+        });
+    }
+
+    @Transactional
+    public int addLike(long filmId, long userId) {
+        int added;
+        try {
+            added = jdbc.update(CREATE, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            added = 0;
+        }
+        if (added > 0) {
+            jdbc.update(CHANGE_LIKE_COUNT, added, filmId);
+        }
+        return added;
+    }
+
+    @Transactional
+    public Map<Long, Integer> addLikes(List<Like> likes) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Like like : likes) {
+            batchArgs.add(new Object[]{like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()});
+        }
+        int[] added = jdbc.batchUpdate(CREATE, batchArgs);
+
+        Map<Long, Integer> addedByFilm = new HashMap<>();
+        for (int i = 0; i < added.length; i++) {
+            if (added[i] > 0) {
+                addedByFilm.merge(likes.get(i).getFilmId(), added[i], Integer::sum);
+            }
+        }
+        List<Object[]> countArgs = new ArrayList<>();
+        addedByFilm.forEach((filmId, count) -> countArgs.add(new Object[]{count, filmId}));
+        if (!countArgs.isEmpty()) {
+            jdbc.batchUpdate(CHANGE_LIKE_COUNT, countArgs);
+        }
+        return addedByFilm;
+    }
+
+    @Transactional
+    public Map<Long, Integer> applyLikes(List<Like> added, List<Like> deleted) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        if (!added.isEmpty()) {
+            List<Object[]> batchArgs = new ArrayList<>();
+            for (Like like : added) {
+                batchArgs.add(new Object[]{like.getFilmId(), like.getUserId(), like.getCreatedAt(),
+                        like.getFilmId(), like.getUserId()});
+            }
+            int[] rows = jdbc.batchUpdate(CREATE_AT, batchArgs);
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] > 0) {
+                    deltas.merge(added.get(i).getFilmId(), rows[i], Integer::sum);
+                }
+            }
+        }
+        if (!deleted.isEmpty()) {
+            List<Object[]> batchArgs = new ArrayList<>();
+            for (Like like : deleted) {
+                batchArgs.add(new Object[]{like.getFilmId(), like.getUserId()});
+            }
+            int[] rows = jdbc.batchUpdate(DELETE, batchArgs);
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] > 0) {
+                    deltas.merge(deleted.get(i).getFilmId(), -rows[i], Integer::sum);
+                }
+            }
+        }
+        List<Object[]> countArgs = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                countArgs.add(new Object[]{delta, filmId});
+            }
+        });
+        if (!countArgs.isEmpty()) {
+            jdbc.batchUpdate(CHANGE_LIKE_COUNT, countArgs);
+        }
+        return deltas;
+    }
+
+    @Transactional
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        List<Like> deleted = jdbc.query(DELETE_RETURNING, likeRowMapper, filmId, userId);
+        if (!deleted.isEmpty()) {
+            jdbc.update(CHANGE_LIKE_COUNT, -deleted.size(), filmId);
+        }
+        return deleted.stream().findFirst();
+    }
+
+    public Map<Long, Integer> countLikesByFilm() {
+        Map<Long, Integer> likes = new HashMap<>();
+        jdbc.query(COUNT_LIKES, rs -> {
+            likes.put(rs.getLong("film_id"), rs.getInt("likes_count"));
+        });
+        return likes;
+    }
+
+    public int recountLikes() {
+        return jdbc.update(RECOUNT_LIKES);
     }
 }
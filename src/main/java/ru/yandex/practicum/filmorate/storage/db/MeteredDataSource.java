@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Замеряет каждый запрос к базе: время выполнения и число прочитанных строк. Запрос называется по методу хранилища,
+ * из которого он выполнен, например GenresDbStorage.findAll. Имя ищется по стеку один раз на каждый текст запроса,
+ * поэтому один и тот же SQL из разных методов учитывается под именем первого из них. Обёртка проксирует каждый вызов
+ * JDBC и включается только свойством filmorate.jdbc.metrics.enabled.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+    private static final String STORAGE_PACKAGE = "ru.yandex.practicum.filmorate.storage.";
+    private static final String OTHER = "other";
+    private static final int MAX_CACHED_QUERIES = 1000;
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final Supplier<MeterRegistry> registry;
+    private final ConcurrentMap<String, QueryMeters> meters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> queryNames = new ConcurrentHashMap<>();
+
+    public MeteredDataSource(DataSource dataSource, Supplier<MeterRegistry> registry) {
+        super(dataSource);
+        this.registry = registry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return meter(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return meter(super.getConnection(username, password));
+    }
+
+    static String queryName() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(STORAGE_PACKAGE)
+                        && !DataSource.class.isAssignableFrom(frame.getDeclaringClass()))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName()))
+                .orElse(OTHER));
+    }
+
+    private Connection meter(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return meter(statement, method.getReturnType(), queryName(sql));
+                    }
+                    return result;
+                });
+    }
+
+    private String queryName(String sql) {
+        if (sql == null) {
+            return queryName();
+        }
+        String name = queryNames.get(sql);
+        if (name != null) {
+            return name;
+        }
+        name = queryName();
+        if (queryNames.size() < MAX_CACHED_QUERIES) {
+            queryNames.putIfAbsent(sql, name);
+        }
+        return name;
+    }
+
+    private Object meter(Statement statement, Class<?> type, String query) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                Object result = invoke(statement, method, args);
+                if (result instanceof ResultSet resultSet && method.getName().equals("getResultSet")) {
+                    return meter(resultSet, query);
+                }
+                return result;
+            }
+            QueryCounter.increment();
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(statement, method, args);
+                return result instanceof ResultSet resultSet ? meter(resultSet, query) : result;
+            } finally {
+                QueryMeters queryMeters = meters(query);
+                if (queryMeters != null) {
+                    queryMeters.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    private ResultSet meter(ResultSet resultSet, String query) {
+        int[] rows = new int[1];
+        boolean[] closed = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        rows[0]++;
+                    } else if (method.getName().equals("close") && !closed[0]) {
+                        closed[0] = true;
+                        QueryMeters queryMeters = meters(query);
+                        if (queryMeters != null) {
+                            queryMeters.rows().record(rows[0]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    private QueryMeters meters(String query) {
+        QueryMeters queryMeters = meters.get(query);
+        if (queryMeters != null) {
+            return queryMeters;
+        }
+        MeterRegistry meterRegistry = registry.get();
+        if (meterRegistry == null) {
+            return null;
+        }
+        return meters.computeIfAbsent(query, name -> new QueryMeters(
+                Timer.builder("filmorate.jdbc.query")
+                        .description("Время выполнения запроса к базе")
+                        .tag("query", name)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry),
+                DistributionSummary.builder("filmorate.jdbc.rows")
+                        .description("Число строк, прочитанных запросом")
+                        .tag("query", name)
+                        .serviceLevelObjectives(1, 10, 100, 1000, 10000)
+                        .register(meterRegistry)));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        int inner = name.indexOf('$');
+        return inner < 0 ? name : name.substring(0, inner);
+    }
+
+    private static String methodName(String methodName) {
+        if (!methodName.startsWith("lambda$")) {
+            return methodName;
+        }
+        int end = methodName.indexOf('$', "lambda$".length());
+        return methodName.substring("lambda$".length(), end < 0 ? methodName.length() : end);
+    }
+
+    private record QueryMeters(Timer timer, DistributionSummary rows) {
+    }
+}
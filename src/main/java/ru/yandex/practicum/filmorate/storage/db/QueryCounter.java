@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+/**
+ * Счётчик запросов к базе в пределах текущего HTTP-запроса.
+ */
+public final class QueryCounter {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    public static int current() {
+        int[] count = COUNT.get();
+        return count == null ? 0 : count[0];
+    }
+
+    public static int finish() {
+        int queries = current();
+        COUNT.remove();
+        return queries;
+    }
+
+    static void increment() {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+}
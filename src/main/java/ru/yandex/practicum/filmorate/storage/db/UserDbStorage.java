@@ -2,32 +2,49 @@ package ru.yandex.practicum.filmorate.storage.db;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Component("userDb")
+@Qualifier("userEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "db", matchIfMissing = true)
 @Slf4j
 public class UserDbStorage implements UserStorage {
     private final JdbcTemplate jdbc;
     private final RowMapper<User> userRowMapper;
     private static final String FIND_ALL = "SELECT * FROM users;";
+    private static final String STREAM_ALL = "SELECT * FROM users ORDER BY id";
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String FIND_PAGE = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
     private static final String CREATE_USER =
             "INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)";
     private static final String UPDATE_USER =
             "UPDATE users SET name = ?, login = ?, email = ?, birthday = ? WHERE id = ?";
     private static final String DELETE_USER = "DELETE FROM users WHERE id = ?";
     private static final String FIND_BY_ID = "SELECT * FROM users WHERE id = ?";
+    private static final String FIND_BY_IDS = "SELECT * FROM users WHERE id IN (%s) ORDER BY id";
+    private static final String FIND_EXISTING_IDS = "SELECT id FROM users WHERE id IN (%s)";
 
 
     @Autowired
@@ -41,6 +58,23 @@ public class UserDbStorage implements UserStorage {
         return jdbc.query(FIND_ALL, userRowMapper);
     }
 
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        jdbc.query(connection -> {
+            PreparedStatement ps = connection
+                    .prepareStatement(STREAM_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(userRowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return jdbc.query(FIND_PAGE, userRowMapper, afterId, limit);
+    }
+
     @Override
     public User create(User user) {
         Long id = insert(CREATE_USER, user.getName(), user.getEmail(), user.getLogin(), user.getBirthday());
@@ -48,6 +82,30 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        List<Object[]> rows = new ArrayList<>();
+        for (User user : users) {
+            rows.add(new Object[]{user.getName(), user.getEmail(), user.getLogin(), user.getBirthday()});
+        }
+        List<Long> ids = BatchInsert.insertAll(jdbc, CREATE_USER, rows);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids.get(i));
+        }
+        return users;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbc.queryForList(String.format(FIND_EXISTING_IDS, placeholders), Long.class,
+                ids.toArray()));
+    }
+
     @Override
     public User update(User user) {
         Optional<User> optionalUser = getUserById(user.getId());
@@ -74,6 +132,15 @@ public class UserDbStorage implements UserStorage {
         return jdbc.query(FIND_BY_ID, userRowMapper, id).stream().findFirst();
     }
 
+    @Override
+    public List<User> findUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbc.query(String.format(FIND_BY_IDS, placeholders), userRowMapper, ids.toArray());
+    }
+
     private long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Component("filmMem")
+@Qualifier("filmEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "mem")
+public class MemFilmStorage implements FilmStorage {
+    private static final Comparator<MemoryStore.FilmRow> BY_LIKES = Comparator
+            .comparingInt((MemoryStore.FilmRow film) -> film.likers().length)
+            .thenComparing(MemoryStore.FilmRow::id, Comparator.reverseOrder());
+    private static final int MAX_PRESIZED = 1000;
+
+    private final MemoryStore store;
+    private final DictionaryCache dictionaryCache;
+
+    public MemFilmStorage(MemoryStore store, DictionaryCache dictionaryCache) {
+        this.store = store;
+        this.dictionaryCache = dictionaryCache;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        List<Film> films = new ArrayList<>();
+        store.forEachFilm(0, film -> films.add(toFilm(film)));
+        return films;
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return store.findFilms(afterId, limit).stream()
+                .map(this::toFilm)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        store.forEachFilm(0, film -> consumer.accept(toFilm(film)));
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setId((long) store.insertFilms(List.of(toRow(film))).get(0).id());
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<MemoryStore.FilmRow> drafts = new ArrayList<>(films.size());
+        for (Film film : films) {
+            drafts.add(toRow(film));
+        }
+        List<MemoryStore.FilmRow> rows = store.insertFilms(drafts);
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId((long) rows.get(i).id());
+        }
+        return films;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (store.getFilm(id) != null) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public Film update(Film film) {
+        MemoryStore.FilmRow current = getRow(film.getId());
+        if (film.getMpa() != null) {
+            dictionaryCache.getRating(film.getMpa().getId());
+        }
+        long[] genreIds = film.getGenres() != null ? toGenreIds(film.getGenres()) : current.genreIds();
+        store.updateFilm(new MemoryStore.FilmRow(current.id(), film.getName(), film.getDescription(),
+                film.getReleaseDate(), film.getDuration(), current.ratingId(), genreIds, current.likers(),
+                current.likedAt()));
+        return film;
+    }
+
+    @Override
+    public Film delete(long id) {
+        MemoryStore.FilmRow film = store.deleteFilm(id);
+        if (film == null) {
+            throw new NotFoundException("Нет фильма с id=" + id);
+        }
+        return toFilm(film);
+    }
+
+    @Override
+    public Film findFilmById(long id) {
+        return toFilm(getRow(id));
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return findPopular(count, null, null, null);
+    }
+
+    @Override
+    public List<Film> findPopular(int count, Long genreId, Long mpaId, Integer year) {
+        PriorityQueue<MemoryStore.FilmRow> top = new PriorityQueue<>(Math.min(count, MAX_PRESIZED) + 1, BY_LIKES);
+        store.forEachFilm(0, film -> {
+            if ((genreId == null || Arrays.binarySearch(film.genreIds(), genreId) >= 0)
+                    && (mpaId == null || film.ratingId() == mpaId)
+                    && (year == null || film.releaseDate().getYear() == year)) {
+                top.add(film);
+                if (top.size() > count) {
+                    top.poll();
+                }
+            }
+        });
+        List<Film> films = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            films.add(toFilm(top.poll()));
+        }
+        return films.reversed();
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MemoryStore.FilmRow film = store.getFilm(id);
+            if (film != null) {
+                films.add(toFilm(film));
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public List<Like> findFilmLikes(long id) {
+        MemoryStore.FilmRow film = store.getFilm(id);
+        List<Like> likes = new ArrayList<>();
+        for (int i = 0; film != null && i < film.likers().length; i++) {
+            likes.add(toLike(film.id(), film.likers()[i], film.likedAt()[i]));
+        }
+        return likes;
+    }
+
+    @Override
+    public Optional<Like> findLike(long filmId, long userId) {
+        MemoryStore.FilmRow film = store.getFilm(filmId);
+        if (film == null || userId <= 0 || userId > Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        int idx = Arrays.binarySearch(film.likers(), (int) userId);
+        return idx < 0 ? Optional.empty() : Optional.of(toLike(film.id(), film.likers()[idx], film.likedAt()[idx]));
+    }
+
+    @Override
+    public void streamLikes(Consumer<Like> consumer) {
+        store.forEachUser(0, user -> {
+            for (int filmId : user.likedFilms()) {
+                consumer.accept(Like.builder()
+                        .filmId((long) filmId)
+                        .userId((long) user.id())
+                        .build());
+            }
+        });
+    }
+
+    @Override
+    public void streamLikesSince(LocalDateTime since, Consumer<Like> consumer) {
+        long sinceMillis = toMillis(since);
+        store.forEachFilm(0, film -> {
+            for (int i = 0; i < film.likers().length; i++) {
+                if (film.likedAt()[i] >= sinceMillis) {
+                    consumer.accept(toLike(film.id(), film.likers()[i], film.likedAt()[i]));
+                }
+            }
+        });
+    }
+
+    @Override
+    public Map<Long, Integer> countLikesByFilm() {
+        Map<Long, Integer> likes = new HashMap<>();
+        store.forEachFilm(0, film -> likes.put((long) film.id(), film.likers().length));
+        return likes;
+    }
+
+    /**
+     * Количество лайков в памяти всегда равно длине списка лайкнувших, пересчитывать нечего.
+     */
+    @Override
+    public int recountLikes() {
+        return 0;
+    }
+
+    @Override
+    public int addLike(long filmId, long userId) {
+        return store.addLike(filmId, userId, toMillis(LocalDateTime.now()));
+    }
+
+    @Override
+    public Map<Long, Integer> addLikes(List<Like> likes) {
+        return store.addLikes(likes, toMillis(LocalDateTime.now()));
+    }
+
+    @Override
+    public Optional<Like> deleteLike(long filmId, long userId) {
+        OptionalLong likedAt = store.deleteLike(filmId, userId);
+        if (likedAt.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toLike((int) filmId, (int) userId, likedAt.getAsLong()));
+    }
+
+    private MemoryStore.FilmRow getRow(long id) {
+        MemoryStore.FilmRow film = store.getFilm(id);
+        if (film == null) {
+            throw new NotFoundException("Нет фильма с id=" + id);
+        }
+        return film;
+    }
+
+    private MemoryStore.FilmRow toRow(Film film) {
+        long ratingId = dictionaryCache.getRating(film.getMpa().getId()).getId();
+        long[] genreIds = film.getGenres() != null ? toGenreIds(film.getGenres()) : new long[0];
+        return MemoryStore.FilmRow.draft(film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), ratingId, genreIds);
+    }
+
+    private long[] toGenreIds(List<Genre> genres) {
+        return dictionaryCache.validateGenres(genres).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+    }
+
+    private Film toFilm(MemoryStore.FilmRow film) {
+        List<Genre> genres = new ArrayList<>(film.genreIds().length);
+        for (long genreId : film.genreIds()) {
+            genres.add(dictionaryCache.getGenre(genreId));
+        }
+        return Film.builder()
+                .id((long) film.id())
+                .name(film.name())
+                .description(film.description())
+                .releaseDate(film.releaseDate())
+                .duration(film.duration())
+                .likeCount(film.likers().length)
+                .mpa(dictionaryCache.getRating(film.ratingId()))
+                .genres(genres)
+                .build();
+    }
+
+    private static Like toLike(int filmId, int userId, long likedAt) {
+        return Like.builder()
+                .filmId((long) filmId)
+                .userId((long) userId)
+                .createdAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(likedAt), ZoneOffset.UTC))
+                .build();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Component("friendMem")
+@Qualifier("friendEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "mem")
+public class MemFriendStorage implements FriendStorage {
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final MemoryStore store;
+
+    public MemFriendStorage(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        addFriends(List.of(Friendship.builder()
+                .userId(userId)
+                .friendId(friendId)
+                .build()));
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        store.addFriends(friendships);
+    }
+
+    @Override
+    public void streamAll(Consumer<Friendship> consumer) {
+        store.forEachUser(0, user -> {
+            for (int friendId : user.friends()) {
+                consumer.accept(Friendship.builder()
+                        .userId((long) user.id())
+                        .friendId((long) friendId)
+                        .build());
+            }
+        });
+    }
+
+    @Override
+    public List<User> getUserFriends(long userId) {
+        return toUsers(friendsOf(userId));
+    }
+
+    @Override
+    public void deleteFriend(long userId, long friendId) {
+        store.deleteFriend(userId, friendId);
+    }
+
+    private int[] friendsOf(long userId) {
+        MemoryStore.UserRow user = store.getUser(userId);
+        return user == null ? NO_FRIENDS : user.friends();
+    }
+
+    private List<User> toUsers(int[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            MemoryStore.UserRow user = store.getUser(id);
+            if (user != null) {
+                users.add(MemUserStorage.toUser(user));
+            }
+        }
+        return users;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+@Component("userMem")
+@Qualifier("userEngine")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "mem")
+public class MemUserStorage implements UserStorage {
+    private final MemoryStore store;
+
+    public MemUserStorage(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        List<User> users = new ArrayList<>();
+        store.forEachUser(0, user -> users.add(toUser(user)));
+        return users;
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return store.findUsers(afterId, limit).stream()
+                .map(MemUserStorage::toUser)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        store.forEachUser(0, user -> consumer.accept(toUser(user)));
+    }
+
+    @Override
+    public User create(User user) {
+        user.setId((long) store.insertUsers(List.of(toRow(user))).get(0).id());
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        List<MemoryStore.UserRow> drafts = new ArrayList<>(users.size());
+        for (User user : users) {
+            drafts.add(toRow(user));
+        }
+        List<MemoryStore.UserRow> rows = store.insertUsers(drafts);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId((long) rows.get(i).id());
+        }
+        return users;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (store.getUser(id) != null) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public User update(User user) {
+        MemoryStore.UserRow current = store.getUser(user.getId());
+        if (current == null) {
+            throw new NotFoundException("Пользователь не найден.");
+        }
+        store.updateUser(new MemoryStore.UserRow(current.id(), user.getEmail(), user.getLogin(), user.getName(),
+                user.getBirthday(), current.likedFilms(), current.friends()));
+        return user;
+    }
+
+    @Override
+    public User delete(long id) {
+        MemoryStore.UserRow user = store.deleteUser(id);
+        if (user == null) {
+            throw new NotFoundException("Пользователь не найден.");
+        }
+        return toUser(user);
+    }
+
+    @Override
+    public Optional<User> getUserById(long id) {
+        MemoryStore.UserRow user = store.getUser(id);
+        return user == null ? Optional.empty() : Optional.of(toUser(user));
+    }
+
+    @Override
+    public List<User> findUsersByIds(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : new TreeSet<>(ids)) {
+            MemoryStore.UserRow user = store.getUser(id);
+            if (user != null) {
+                users.add(toUser(user));
+            }
+        }
+        return users;
+    }
+
+    private static MemoryStore.UserRow toRow(User user) {
+        return MemoryStore.UserRow.draft(user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+
+    static User toUser(MemoryStore.UserRow user) {
+        return User.builder()
+                .id((long) user.id())
+                .email(user.email())
+                .login(user.login())
+                .name(user.name())
+                .birthday(user.birthday())
+                .build();
+    }
+}
@@ -0,0 +1,758 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Данные хранилища в памяти: фильмы и пользователи лежат в массивах по id неизменяемыми строками, лайки и друзья —
+ * отсортированными массивами id внутри строк. Изменения сначала пишутся в журнал, затем применяются к массивам под
+ * общей блокировкой записи; чтение идёт без блокировок. Снимок пишется в фоне: под блокировкой журнал закрывается
+ * в сегмент и копируются ссылки на строки, а сами строки неизменяемы, так что запись не ждёт сохранения снимка.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "mem")
+public class MemoryStore {
+    private static final byte PUT_FILM = 1;
+    private static final byte DELETE_FILM = 2;
+    private static final byte PUT_USER = 3;
+    private static final byte DELETE_USER = 4;
+    private static final byte ADD_LIKE = 5;
+    private static final byte DELETE_LIKE = 6;
+    private static final byte ADD_FRIEND = 7;
+    private static final byte DELETE_FRIEND = 8;
+    private static final byte SEQUENCES = 9;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SNAPSHOT_BATCH = 4096;
+    private static final int[] NO_IDS = new int[0];
+    private static final long[] NO_TIMES = new long[0];
+
+    private final Object writeLock = new Object();
+    private final WriteAheadLog wal;
+    private final long snapshotEvery;
+    private volatile AtomicReferenceArray<FilmRow> films = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile AtomicReferenceArray<UserRow> users = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private int nextFilmId = 1;
+    private int nextUserId = 1;
+    private long appendedSinceSnapshot;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mem-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MemoryStore(@Value("${filmorate.storage.mem.dir:./db/mem}") String dir,
+                       @Value("${filmorate.storage.mem.snapshot-every:100000}") long snapshotEvery,
+                       @Value("${filmorate.storage.mem.fsync:false}") boolean fsync) throws IOException {
+        this.wal = new WriteAheadLog(Path.of(dir), fsync);
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        synchronized (writeLock) {
+            long records = wal.replay(this::apply);
+            log.info("Хранилище в памяти загружено: записей {}, следующий id фильма {}, пользователя {}",
+                    records, nextFilmId, nextUserId);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        snapshotWriter.shutdown();
+        snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+        synchronized (writeLock) {
+            writeSnapshot(takeSnapshotView());
+            wal.close();
+        }
+    }
+
+    /**
+     * Ждёт, пока допишется начатый в фоне снимок.
+     */
+    public void awaitSnapshot() throws InterruptedException {
+        try {
+            snapshotWriter.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    FilmRow getFilm(long id) {
+        AtomicReferenceArray<FilmRow> current = films;
+        return id > 0 && id < current.length() ? current.get((int) id) : null;
+    }
+
+    UserRow getUser(long id) {
+        AtomicReferenceArray<UserRow> current = users;
+        return id > 0 && id < current.length() ? current.get((int) id) : null;
+    }
+
+    void forEachFilm(long afterId, Consumer<FilmRow> consumer) {
+        AtomicReferenceArray<FilmRow> current = films;
+        for (int id = (int) Math.max(1, afterId + 1); id < current.length(); id++) {
+            FilmRow film = current.get(id);
+            if (film != null) {
+                consumer.accept(film);
+            }
+        }
+    }
+
+    void forEachUser(long afterId, Consumer<UserRow> consumer) {
+        AtomicReferenceArray<UserRow> current = users;
+        for (int id = (int) Math.max(1, afterId + 1); id < current.length(); id++) {
+            UserRow user = current.get(id);
+            if (user != null) {
+                consumer.accept(user);
+            }
+        }
+    }
+
+    List<FilmRow> findFilms(long afterId, int limit) {
+        AtomicReferenceArray<FilmRow> current = films;
+        List<FilmRow> page = new ArrayList<>(Math.min(limit, current.length()));
+        for (int id = (int) Math.max(1, afterId + 1); id < current.length() && page.size() < limit; id++) {
+            FilmRow film = current.get(id);
+            if (film != null) {
+                page.add(film);
+            }
+        }
+        return page;
+    }
+
+    List<UserRow> findUsers(long afterId, int limit) {
+        AtomicReferenceArray<UserRow> current = users;
+        List<UserRow> page = new ArrayList<>(Math.min(limit, current.length()));
+        for (int id = (int) Math.max(1, afterId + 1); id < current.length() && page.size() < limit; id++) {
+            UserRow user = current.get(id);
+            if (user != null) {
+                page.add(user);
+            }
+        }
+        return page;
+    }
+
+    List<FilmRow> insertFilms(List<FilmRow> drafts) {
+        synchronized (writeLock) {
+            RecordBatch batch = new RecordBatch();
+            List<FilmRow> rows = new ArrayList<>(drafts.size());
+            int id = nextFilmId;
+            for (FilmRow draft : drafts) {
+                FilmRow row = draft.withId(id++);
+                rows.add(row);
+                batch.add(putFilm(row));
+            }
+            commit(batch);
+            rows.forEach(this::applyPutFilm);
+            afterCommit(batch);
+            return rows;
+        }
+    }
+
+    void updateFilm(FilmRow film) {
+        synchronized (writeLock) {
+            if (getFilm(film.id()) == null) {
+                return;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(putFilm(film));
+            commit(batch);
+            applyPutFilm(film);
+            afterCommit(batch);
+        }
+    }
+
+    FilmRow deleteFilm(long id) {
+        synchronized (writeLock) {
+            FilmRow film = getFilm(id);
+            if (film == null) {
+                return null;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(out -> {
+                out.writeByte(DELETE_FILM);
+                out.writeInt(film.id());
+            });
+            commit(batch);
+            applyDeleteFilm(film.id());
+            afterCommit(batch);
+            return film;
+        }
+    }
+
+    List<UserRow> insertUsers(List<UserRow> drafts) {
+        synchronized (writeLock) {
+            RecordBatch batch = new RecordBatch();
+            List<UserRow> rows = new ArrayList<>(drafts.size());
+            int id = nextUserId;
+            for (UserRow draft : drafts) {
+                UserRow row = draft.withId(id++);
+                rows.add(row);
+                batch.add(putUser(row));
+            }
+            commit(batch);
+            rows.forEach(this::applyPutUser);
+            afterCommit(batch);
+            return rows;
+        }
+    }
+
+    void updateUser(UserRow user) {
+        synchronized (writeLock) {
+            if (getUser(user.id()) == null) {
+                return;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(putUser(user));
+            commit(batch);
+            applyPutUser(user);
+            afterCommit(batch);
+        }
+    }
+
+    UserRow deleteUser(long id) {
+        synchronized (writeLock) {
+            UserRow user = getUser(id);
+            if (user == null) {
+                return null;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(out -> {
+                out.writeByte(DELETE_USER);
+                out.writeInt(user.id());
+            });
+            commit(batch);
+            applyDeleteUser(user.id());
+            afterCommit(batch);
+            return user;
+        }
+    }
+
+    int addLike(long filmId, long userId, long likedAt) {
+        synchronized (writeLock) {
+            checkLike(filmId, userId);
+            if (Arrays.binarySearch(getFilm(filmId).likers(), (int) userId) >= 0) {
+                return 0;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(addLikeRecord((int) filmId, (int) userId, likedAt));
+            commit(batch);
+            applyAddLike((int) filmId, (int) userId, likedAt);
+            afterCommit(batch);
+            return 1;
+        }
+    }
+
+    Map<Long, Integer> addLikes(List<Like> likes, long likedAt) {
+        synchronized (writeLock) {
+            for (Like like : likes) {
+                checkLike(like.getFilmId(), like.getUserId());
+            }
+            RecordBatch batch = new RecordBatch();
+            Set<Long> added = new HashSet<>();
+            Map<Long, Integer> addedByFilm = new HashMap<>();
+            for (Like like : likes) {
+                int filmId = like.getFilmId().intValue();
+                int userId = like.getUserId().intValue();
+                if (Arrays.binarySearch(getFilm(filmId).likers(), userId) < 0
+                        && added.add(((long) filmId << 32) | userId)) {
+                    batch.add(addLikeRecord(filmId, userId, likedAt));
+                    addedByFilm.merge(like.getFilmId(), 1, Integer::sum);
+                }
+            }
+            if (batch.isEmpty()) {
+                return addedByFilm;
+            }
+            commit(batch);
+            for (long like : added) {
+                applyAddLike((int) (like >>> 32), (int) like, likedAt);
+            }
+            afterCommit(batch);
+            return addedByFilm;
+        }
+    }
+
+    OptionalLong deleteLike(long filmId, long userId) {
+        synchronized (writeLock) {
+            FilmRow film = getFilm(filmId);
+            int idx = film == null || userId <= 0 || userId > Integer.MAX_VALUE ? -1
+                    : Arrays.binarySearch(film.likers(), (int) userId);
+            if (idx < 0) {
+                return OptionalLong.empty();
+            }
+            long likedAt = film.likedAt()[idx];
+            RecordBatch batch = new RecordBatch();
+            batch.add(out -> {
+                out.writeByte(DELETE_LIKE);
+                out.writeInt(film.id());
+                out.writeInt((int) userId);
+            });
+            commit(batch);
+            applyDeleteLike(film.id(), (int) userId);
+            afterCommit(batch);
+            return OptionalLong.of(likedAt);
+        }
+    }
+
+    void addFriends(List<Friendship> friendships) {
+        synchronized (writeLock) {
+            for (Friendship friendship : friendships) {
+                if (getUser(friendship.getUserId()) == null || getUser(friendship.getFriendId()) == null) {
+                    throw new DataIntegrityViolationException("Нет пользователя для дружбы " + friendship);
+                }
+            }
+            RecordBatch batch = new RecordBatch();
+            Set<Long> added = new HashSet<>();
+            for (Friendship friendship : friendships) {
+                int userId = friendship.getUserId().intValue();
+                int friendId = friendship.getFriendId().intValue();
+                if (Arrays.binarySearch(getUser(userId).friends(), friendId) < 0
+                        && added.add(((long) userId << 32) | friendId)) {
+                    batch.add(friendRecord(ADD_FRIEND, userId, friendId));
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            commit(batch);
+            for (long friendship : added) {
+                applyAddFriend((int) (friendship >>> 32), (int) friendship);
+            }
+            afterCommit(batch);
+        }
+    }
+
+    void deleteFriend(long userId, long friendId) {
+        synchronized (writeLock) {
+            UserRow user = getUser(userId);
+            if (user == null || friendId <= 0 || friendId > Integer.MAX_VALUE
+                    || Arrays.binarySearch(user.friends(), (int) friendId) < 0) {
+                return;
+            }
+            RecordBatch batch = new RecordBatch();
+            batch.add(friendRecord(DELETE_FRIEND, user.id(), (int) friendId));
+            commit(batch);
+            applyDeleteFriend(user.id(), (int) friendId);
+            afterCommit(batch);
+        }
+    }
+
+    private void checkLike(long filmId, long userId) {
+        if (getFilm(filmId) == null) {
+            throw new DataIntegrityViolationException("Нет фильма с id=" + filmId);
+        }
+        if (getUser(userId) == null) {
+            throw new DataIntegrityViolationException("Нет пользователя с id = " + userId);
+        }
+    }
+
+    private void commit(RecordBatch batch) {
+        try {
+            wal.append(batch);
+        } catch (IOException e) {
+            log.error("Не удалось записать изменения в журнал хранилища", e);
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+    }
+
+    private void afterCommit(RecordBatch batch) {
+        appendedSinceSnapshot += batch.size();
+        if (appendedSinceSnapshot < snapshotEvery || !snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            SnapshotView view = takeSnapshotView();
+            appendedSinceSnapshot = 0;
+            log.debug("Журнал хранилища закрыт в сегмент {} за {} мкс", view.segment(),
+                    (System.nanoTime() - started) / 1_000);
+            snapshotWriter.execute(() -> {
+                try {
+                    writeSnapshot(view);
+                } catch (IOException e) {
+                    log.error("Не удалось сохранить снимок хранилища, изменения остаются в журнале", e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        } catch (IOException | RejectedExecutionException e) {
+            snapshotRunning.set(false);
+            log.error("Не удалось начать снимок хранилища, изменения остаются в журнале", e);
+        }
+    }
+
+    /**
+     * Вызывается под блокировкой записи: начинает новый сегмент журнала и запоминает текущие строки.
+     */
+    private SnapshotView takeSnapshotView() throws IOException {
+        long segment = wal.roll();
+        AtomicReferenceArray<FilmRow> currentFilms = films;
+        AtomicReferenceArray<UserRow> currentUsers = users;
+        FilmRow[] filmRows = new FilmRow[currentFilms.length()];
+        for (int id = 1; id < filmRows.length; id++) {
+            filmRows[id] = currentFilms.get(id);
+        }
+        UserRow[] userRows = new UserRow[currentUsers.length()];
+        for (int id = 1; id < userRows.length; id++) {
+            userRows[id] = currentUsers.get(id);
+        }
+        return new SnapshotView(segment, nextFilmId, nextUserId, filmRows, userRows);
+    }
+
+    private void writeSnapshot(SnapshotView view) throws IOException {
+        long started = System.nanoTime();
+        wal.snapshot(view.segment(), out -> {
+            RecordBatch batch = new RecordBatch();
+            batch.add(sequences -> {
+                sequences.writeByte(SEQUENCES);
+                sequences.writeInt(view.nextFilmId());
+                sequences.writeInt(view.nextUserId());
+            });
+            for (FilmRow film : view.films()) {
+                if (film != null) {
+                    batch.add(putFilm(film));
+                    flushIfFull(batch, out);
+                }
+            }
+            for (UserRow user : view.users()) {
+                if (user != null) {
+                    batch.add(putUser(user));
+                    flushIfFull(batch, out);
+                }
+            }
+            for (FilmRow film : view.films()) {
+                for (int i = 0; film != null && i < film.likers().length; i++) {
+                    batch.add(addLikeRecord(film.id(), film.likers()[i], film.likedAt()[i]));
+                    flushIfFull(batch, out);
+                }
+            }
+            for (UserRow user : view.users()) {
+                for (int i = 0; user != null && i < user.friends().length; i++) {
+                    batch.add(friendRecord(ADD_FRIEND, user.id(), user.friends()[i]));
+                    flushIfFull(batch, out);
+                }
+            }
+            batch.writeTo(out);
+        });
+        log.info("Снимок хранилища сохранён за {} мс", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void flushIfFull(RecordBatch batch, OutputStream out) throws IOException {
+        if (batch.size() >= SNAPSHOT_BATCH) {
+            batch.writeTo(out);
+            batch.reset();
+        }
+    }
+
+    private void apply(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case PUT_FILM -> applyPutFilm(readFilm(in));
+            case DELETE_FILM -> applyDeleteFilm(in.readInt());
+            case PUT_USER -> applyPutUser(readUser(in));
+            case DELETE_USER -> applyDeleteUser(in.readInt());
+            case ADD_LIKE -> applyAddLike(in.readInt(), in.readInt(), in.readLong());
+            case DELETE_LIKE -> applyDeleteLike(in.readInt(), in.readInt());
+            case ADD_FRIEND -> applyAddFriend(in.readInt(), in.readInt());
+            case DELETE_FRIEND -> applyDeleteFriend(in.readInt(), in.readInt());
+            case SEQUENCES -> {
+                nextFilmId = Math.max(nextFilmId, in.readInt());
+                nextUserId = Math.max(nextUserId, in.readInt());
+            }
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private void applyPutFilm(FilmRow film) {
+        if (film.id() >= films.length()) {
+            films = grow(films, film.id());
+        }
+        FilmRow current = films.get(film.id());
+        films.set(film.id(), current == null ? film : film.withLikes(current.likers(), current.likedAt()));
+        nextFilmId = Math.max(nextFilmId, film.id() + 1);
+    }
+
+    private void applyDeleteFilm(int filmId) {
+        FilmRow film = getFilm(filmId);
+        if (film == null) {
+            return;
+        }
+        for (int userId : film.likers()) {
+            UserRow user = getUser(userId);
+            if (user != null) {
+                users.set(userId, user.withLikedFilms(remove(user.likedFilms(), filmId)));
+            }
+        }
+        films.set(filmId, null);
+    }
+
+    private void applyPutUser(UserRow user) {
+        if (user.id() >= users.length()) {
+            users = grow(users, user.id());
+        }
+        UserRow current = users.get(user.id());
+        users.set(user.id(), current == null ? user : user.withRelations(current.likedFilms(), current.friends()));
+        nextUserId = Math.max(nextUserId, user.id() + 1);
+    }
+
+    private void applyDeleteUser(int userId) {
+        UserRow user = getUser(userId);
+        if (user == null) {
+            return;
+        }
+        for (int filmId : user.likedFilms()) {
+            FilmRow film = getFilm(filmId);
+            if (film != null) {
+                int idx = Arrays.binarySearch(film.likers(), userId);
+                if (idx >= 0) {
+                    films.set(filmId, film.withLikes(removeAt(film.likers(), idx), removeAt(film.likedAt(), idx)));
+                }
+            }
+        }
+        users.set(userId, null);
+        for (int id = 1; id < users.length(); id++) {
+            UserRow other = users.get(id);
+            if (other != null && Arrays.binarySearch(other.friends(), userId) >= 0) {
+                users.set(id, other.withRelations(other.likedFilms(), remove(other.friends(), userId)));
+            }
+        }
+    }
+
+    private void applyAddLike(int filmId, int userId, long likedAt) {
+        FilmRow film = getFilm(filmId);
+        UserRow user = getUser(userId);
+        if (film == null || user == null) {
+            return;
+        }
+        int idx = Arrays.binarySearch(film.likers(), userId);
+        if (idx >= 0) {
+            return;
+        }
+        int at = -idx - 1;
+        films.set(filmId, film.withLikes(insert(film.likers(), at, userId), insert(film.likedAt(), at, likedAt)));
+        users.set(userId, user.withLikedFilms(insert(user.likedFilms(), filmId)));
+    }
+
+    private void applyDeleteLike(int filmId, int userId) {
+        FilmRow film = getFilm(filmId);
+        if (film == null) {
+            return;
+        }
+        int idx = Arrays.binarySearch(film.likers(), userId);
+        if (idx < 0) {
+            return;
+        }
+        films.set(filmId, film.withLikes(removeAt(film.likers(), idx), removeAt(film.likedAt(), idx)));
+        UserRow user = getUser(userId);
+        if (user != null) {
+            users.set(userId, user.withLikedFilms(remove(user.likedFilms(), filmId)));
+        }
+    }
+
+    private void applyAddFriend(int userId, int friendId) {
+        UserRow user = getUser(userId);
+        if (user != null && getUser(friendId) != null) {
+            users.set(userId, user.withRelations(user.likedFilms(), insert(user.friends(), friendId)));
+        }
+    }
+
+    private void applyDeleteFriend(int userId, int friendId) {
+        UserRow user = getUser(userId);
+        if (user != null) {
+            users.set(userId, user.withRelations(user.likedFilms(), remove(user.friends(), friendId)));
+        }
+    }
+
+    private static RecordBatch.RecordWriter putFilm(FilmRow film) {
+        return out -> {
+            out.writeByte(PUT_FILM);
+            out.writeInt(film.id());
+            RecordBatch.writeString(out, film.name());
+            RecordBatch.writeString(out, film.description());
+            out.writeLong(film.releaseDate().toEpochDay());
+            out.writeInt(film.duration());
+            out.writeLong(film.ratingId());
+            out.writeInt(film.genreIds().length);
+            for (long genreId : film.genreIds()) {
+                out.writeLong(genreId);
+            }
+        };
+    }
+
+    private static FilmRow readFilm(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = WriteAheadLog.readString(in);
+        String description = WriteAheadLog.readString(in);
+        LocalDate releaseDate = LocalDate.ofEpochDay(in.readLong());
+        int duration = in.readInt();
+        long ratingId = in.readLong();
+        long[] genreIds = new long[in.readInt()];
+        for (int i = 0; i < genreIds.length; i++) {
+            genreIds[i] = in.readLong();
+        }
+        return new FilmRow(id, name, description, releaseDate, duration, ratingId, genreIds, NO_IDS, NO_TIMES);
+    }
+
+    private static RecordBatch.RecordWriter putUser(UserRow user) {
+        return out -> {
+            out.writeByte(PUT_USER);
+            out.writeInt(user.id());
+            RecordBatch.writeString(out, user.email());
+            RecordBatch.writeString(out, user.login());
+            RecordBatch.writeString(out, user.name());
+            out.writeLong(user.birthday().toEpochDay());
+        };
+    }
+
+    private static UserRow readUser(DataInput in) throws IOException {
+        int id = in.readInt();
+        String email = WriteAheadLog.readString(in);
+        String login = WriteAheadLog.readString(in);
+        String name = WriteAheadLog.readString(in);
+        LocalDate birthday = LocalDate.ofEpochDay(in.readLong());
+        return new UserRow(id, email, login, name, birthday, NO_IDS, NO_IDS);
+    }
+
+    private static RecordBatch.RecordWriter addLikeRecord(int filmId, int userId, long likedAt) {
+        return out -> {
+            out.writeByte(ADD_LIKE);
+            out.writeInt(filmId);
+            out.writeInt(userId);
+            out.writeLong(likedAt);
+        };
+    }
+
+    private static RecordBatch.RecordWriter friendRecord(byte type, int userId, int friendId) {
+        return out -> {
+            out.writeByte(type);
+            out.writeInt(userId);
+            out.writeInt(friendId);
+        };
+    }
+
+    private static <T> AtomicReferenceArray<T> grow(AtomicReferenceArray<T> array, int id) {
+        AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(Math.max(id + 1, array.length() * 2));
+        for (int i = 0; i < array.length(); i++) {
+            grown.set(i, array.get(i));
+        }
+        return grown;
+    }
+
+    private static int[] insert(int[] values, int value) {
+        int idx = Arrays.binarySearch(values, value);
+        return idx >= 0 ? values : insert(values, -idx - 1, value);
+    }
+
+    private static int[] insert(int[] values, int at, int value) {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+
+    private static long[] insert(long[] values, int at, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(values, at, result, at + 1, values.length - at);
+        return result;
+    }
+
+    private static int[] remove(int[] values, int value) {
+        int idx = Arrays.binarySearch(values, value);
+        return idx < 0 ? values : removeAt(values, idx);
+    }
+
+    private static int[] removeAt(int[] values, int idx) {
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, idx);
+        System.arraycopy(values, idx + 1, result, idx, values.length - idx - 1);
+        return result;
+    }
+
+    private static long[] removeAt(long[] values, int idx) {
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, idx);
+        System.arraycopy(values, idx + 1, result, idx, values.length - idx - 1);
+        return result;
+    }
+
+    /**
+     * Фильм; likers — отсортированные id лайкнувших пользователей, likedAt — время лайка с тем же индексом.
+     */
+    record FilmRow(int id, String name, String description, LocalDate releaseDate, int duration, long ratingId,
+                   long[] genreIds, int[] likers, long[] likedAt) {
+
+        static FilmRow draft(String name, String description, LocalDate releaseDate, int duration, long ratingId,
+                             long[] genreIds) {
+            return new FilmRow(0, name, description, releaseDate, duration, ratingId, genreIds, NO_IDS, NO_TIMES);
+        }
+
+        FilmRow withId(int newId) {
+            return new FilmRow(newId, name, description, releaseDate, duration, ratingId, genreIds, likers, likedAt);
+        }
+
+        FilmRow withLikes(int[] newLikers, long[] newLikedAt) {
+            return new FilmRow(id, name, description, releaseDate, duration, ratingId, genreIds, newLikers,
+                    newLikedAt);
+        }
+    }
+
+    record UserRow(int id, String email, String login, String name, LocalDate birthday, int[] likedFilms,
+                   int[] friends) {
+
+        static UserRow draft(String email, String login, String name, LocalDate birthday) {
+            return new UserRow(0, email, login, name, birthday, NO_IDS, NO_IDS);
+        }
+
+        UserRow withId(int newId) {
+            return new UserRow(newId, email, login, name, birthday, likedFilms, friends);
+        }
+
+        UserRow withLikedFilms(int[] newLikedFilms) {
+            return new UserRow(id, email, login, name, birthday, newLikedFilms, friends);
+        }
+
+        UserRow withRelations(int[] newLikedFilms, int[] newFriends) {
+            return new UserRow(id, email, login, name, birthday, newLikedFilms, newFriends);
+        }
+    }
+
+    /**
+     * Строки хранилища на момент закрытия сегмента segment журнала.
+     */
+    private record SnapshotView(long segment, int nextFilmId, int nextUserId, FilmRow[] films, UserRow[] users) {
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Пачка записей журнала в формате [длина][crc32][данные], которая пишется в файл одним вызовом.
+ */
+final class RecordBatch {
+    private final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    private final DataOutputStream framesOut = new DataOutputStream(frames);
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final CRC32 crc = new CRC32();
+    private int size;
+
+    void add(RecordWriter writer) {
+        try {
+            payload.reset();
+            writer.write(payloadOut);
+            crc.reset();
+            crc.update(payload.toByteArray());
+            framesOut.writeInt(payload.size());
+            framesOut.writeInt((int) crc.getValue());
+            payload.writeTo(framesOut);
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(frames.toByteArray());
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        frames.writeTo(out);
+    }
+
+    void reset() {
+        frames.reset();
+        size = 0;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @FunctionalInterface
+    interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+}
@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.storage.mem;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений хранилища в памяти и его снимок. Перед снимком текущий журнал закрывается в сегмент
+ * filmorate.wal.N, а новые записи идут в свежий журнал, поэтому снимок можно писать в фоне. В заголовке снимка
+ * хранится номер последнего вошедшего в него сегмента. При старте читается снимок, затем сегменты с большими
+ * номерами и текущий журнал; сегменты, уже вошедшие в снимок, удаляются, недописанная последняя запись журнала
+ * отбрасывается.
+ */
+@Slf4j
+final class WriteAheadLog implements Closeable {
+    private static final String LOG_FILE = "filmorate.wal";
+    private static final String SNAPSHOT_FILE = "filmorate.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0xF11D5A9E;
+    private static final int SNAPSHOT_HEADER = Integer.BYTES + Long.BYTES;
+
+    private final Path dir;
+    private final Path logPath;
+    private final Path snapshotPath;
+    private final boolean fsync;
+    private FileChannel channel;
+    private long segment;
+
+    WriteAheadLog(Path dir, boolean fsync) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.logPath = dir.resolve(LOG_FILE);
+        this.snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        this.fsync = fsync;
+    }
+
+    long replay(RecordHandler handler) throws IOException {
+        long records = 0;
+        long covered = 0;
+        if (Files.exists(snapshotPath)) {
+            covered = readSnapshotSegment();
+            long header = covered < 0 ? 0 : SNAPSHOT_HEADER;
+            ReadResult snapshot = read(snapshotPath, header, handler);
+            if (header + snapshot.validBytes() != Files.size(snapshotPath)) {
+                throw new IOException("Снимок хранилища повреждён: " + snapshotPath);
+            }
+            records += snapshot.records();
+            covered = Math.max(covered, 0);
+        }
+        segment = covered;
+        for (long number : listSegments()) {
+            Path segmentPath = segmentPath(number);
+            if (number <= covered) {
+                Files.delete(segmentPath);
+                continue;
+            }
+            ReadResult rolled = read(segmentPath, 0, handler);
+            if (rolled.validBytes() != Files.size(segmentPath)) {
+                log.warn("Сегмент журнала {} прочитан до последней целой записи", segmentPath);
+            }
+            records += rolled.records();
+            segment = number;
+        }
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ReadResult journal = read(logPath, 0, handler);
+        records += journal.records();
+        long valid = journal.validBytes();
+        if (valid < channel.size()) {
+            log.warn("Журнал хранилища обрезан до последней целой записи: {} из {} байт", valid, channel.size());
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        return records;
+    }
+
+    void append(RecordBatch batch) throws IOException {
+        long position = channel.position();
+        ByteBuffer buffer = batch.toByteBuffer();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            channel.truncate(position);
+            channel.position(position);
+            throw e;
+        }
+    }
+
+    /**
+     * Закрывает текущий журнал в сегмент и начинает новый. Возвращает номер сегмента, который должен войти в
+     * следующий снимок вместе со всеми предыдущими.
+     */
+    long roll() throws IOException {
+        Path segmentPath = segmentPath(segment + 1);
+        Files.move(logPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel next;
+        try {
+            next = FileChannel.open(logPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            Files.move(segmentPath, logPath, StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+        channel.close();
+        channel = next;
+        return ++segment;
+    }
+
+    /**
+     * Пишет снимок состояния, в которое вошли сегменты до covered включительно, и удаляет эти сегменты. Текущий
+     * журнал не трогает, поэтому может выполняться параллельно с {@link #append}.
+     */
+    void snapshot(long covered, SnapshotWriter writer) throws IOException {
+        Path tmpPath = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel snapshotChannel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(snapshotChannel)));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(covered);
+            writer.write(out);
+            out.flush();
+            snapshotChannel.force(true);
+        }
+        Files.move(tmpPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long number : listSegments()) {
+            if (number <= covered) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Читает записи до первой недописанной или испорченной. Такой считается запись с нулевой длиной (нули в хвосте
+     * файла после сбоя проходят проверку CRC пустого содержимого), с длиной больше остатка файла, с неверной
+     * контрольной суммой и запись, содержимое которой обработчик не смог дочитать.
+     */
+    private ReadResult read(Path path, long offset, RecordHandler handler) throws IOException {
+        long records = 0;
+        long valid = 0;
+        long size = Files.size(path) - offset;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            in.skipNBytes(offset);
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > size - valid - Integer.BYTES * 2) {
+                        return new ReadResult(records, valid);
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        return new ReadResult(records, valid);
+                    }
+                } catch (EOFException e) {
+                    return new ReadResult(records, valid);
+                }
+                try {
+                    handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+                } catch (EOFException e) {
+                    return new ReadResult(records, valid);
+                }
+                valid += Integer.BYTES * 2 + payload.length;
+                records++;
+            }
+        }
+    }
+
+    /**
+     * Номер последнего сегмента, вошедшего в снимок, или -1 для снимка старого формата без заголовка.
+     */
+    private long readSnapshotSegment() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            return in.readInt() == SNAPSHOT_MAGIC ? in.readLong() : -1;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        String prefix = LOG_FILE + ".";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .map(name -> Long.parseLong(name.substring(prefix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(LOG_FILE + "." + number);
+    }
+
+    private record ReadResult(long records, long validBytes) {
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(DataInput in) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -12,8 +12,11 @@ CREATE TABLE IF NOT EXISTS films (
     description varchar(255),
     release_date date NOT NULL CHECK (release_date >= DATE '1895-12-28'),
     duration INTEGER NOT NULL CHECK (duration > 0),
-    rating_id INTEGER REFERENCES ratings (rating_id)
+    rating_id INTEGER REFERENCES ratings (rating_id),
+    like_count INTEGER NOT NULL DEFAULT 0
 );
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INTEGER NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, id);
 CREATE TABLE IF NOT EXISTS film_genres (
     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
@@ -29,7 +32,8 @@ CREATE TABLE IF NOT EXISTS users(
 CREATE TABLE IF NOT EXISTS likes (
     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
-    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE
+    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    created_at TIMESTAMP DEFAULT LOCALTIMESTAMP
 );
 CREATE TABLE IF NOT EXISTS status (
     status_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -40,3 +44,50 @@ CREATE TABLE IF NOT EXISTS friends (
     user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
     friend_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
     status_id INTEGER REFERENCES status (status_id));
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INTEGER PRIMARY KEY,
+    description varchar(255) NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+MERGE INTO schema_version AS v
+    USING (VALUES
+               (1, 'Базовая схема'),
+               (2, 'Счётчик лайков в films')
+        ) AS vals(version, description)
+ON v.version = vals.version
+WHEN NOT MATCHED THEN
+    INSERT (version, description) VALUES (vals.version, vals.description);
+DELETE FROM likes
+WHERE NOT EXISTS (SELECT 1 FROM schema_version WHERE version >= 3)
+  AND id NOT IN (SELECT MIN(id) FROM likes GROUP BY film_id, user_id);
+DELETE FROM friends
+WHERE NOT EXISTS (SELECT 1 FROM schema_version WHERE version >= 3)
+  AND id NOT IN (SELECT MIN(id) FROM friends GROUP BY user_id, friend_id);
+DELETE FROM film_genres
+WHERE NOT EXISTS (SELECT 1 FROM schema_version WHERE version >= 3)
+  AND id NOT IN (SELECT MIN(id) FROM film_genres GROUP BY film_id, genre_id);
+CREATE UNIQUE INDEX IF NOT EXISTS likes_film_user_uq ON likes (film_id, user_id);
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON likes (user_id, film_id);
+CREATE UNIQUE INDEX IF NOT EXISTS friends_user_friend_uq ON friends (user_id, friend_id);
+CREATE INDEX IF NOT EXISTS friends_friend_user_idx ON friends (friend_id, user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS film_genres_film_genre_uq ON film_genres (film_id, genre_id);
+CREATE INDEX IF NOT EXISTS film_genres_genre_film_idx ON film_genres (genre_id, film_id);
+MERGE INTO schema_version AS v
+    USING (VALUES (3, 'Уникальные и обратные индексы связующих таблиц')) AS vals(version, description)
+ON v.version = vals.version
+WHEN NOT MATCHED THEN
+    INSERT (version, description) VALUES (vals.version, vals.description);
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP;
+ALTER TABLE likes ALTER COLUMN created_at SET DEFAULT LOCALTIMESTAMP;
+CREATE INDEX IF NOT EXISTS likes_created_at_idx ON likes (created_at);
+MERGE INTO schema_version AS v
+    USING (VALUES (4, 'Время создания лайка')) AS vals(version, description)
+ON v.version = vals.version
+WHEN NOT MATCHED THEN
+    INSERT (version, description) VALUES (vals.version, vals.description);
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+MERGE INTO schema_version AS v
+    USING (VALUES (5, 'Индекс по дате выхода фильма')) AS vals(version, description)
+ON v.version = vals.version
+WHEN NOT MATCHED THEN
+    INSERT (version, description) VALUES (vals.version, vals.description);
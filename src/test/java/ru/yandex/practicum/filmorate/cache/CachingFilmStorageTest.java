@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CoalescingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({CachingFilmStorage.class, CoalescingFilmStorage.class, FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class, UserDbStorage.class, UserRowMapper.class})
+class CachingFilmStorageTest {
+
+    @Autowired
+    private CachingFilmStorage filmStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testCachedFilmIsInvalidatedOnWrites() {
+        Film film = filmStorage.create(Film.builder()
+                .name("cached")
+                .description("cached")
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(90)
+                .mpa(new Rating(1L, "G"))
+                .build());
+        User user = userStorage.create(User.builder()
+                .email("cached@mail.ru")
+                .login("cached")
+                .name("cached")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        assertThat(filmStorage.findFilmById(film.getId()).getName()).isEqualTo("cached");
+        jdbc.update("UPDATE films SET name = 'bypassed' WHERE id = ?", film.getId());
+        assertThat(filmStorage.findFilmById(film.getId()).getName()).isEqualTo("cached");
+
+        filmStorage.addLike(film.getId(), user.getId());
+        Film liked = filmStorage.findFilmById(film.getId());
+        assertThat(liked.getName()).isEqualTo("bypassed");
+        assertThat(liked.getLikeCount()).isEqualTo(1);
+
+        liked.setName("updated");
+        filmStorage.update(liked);
+        assertThat(filmStorage.findFilmById(film.getId()).getName()).isEqualTo("updated");
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.db;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import ru.yandex.practicum.filmorate.storage.db.BulkheadDataSource;
+import ru.yandex.practicum.filmorate.storage.db.DataSourceBulkheadPostProcessor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+class BulkheadDataSourceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testConnectionsAreLimitedUntilClosed() throws SQLException {
+        BulkheadDataSource bulkhead = new BulkheadDataSource(dataSource, 1, Duration.ofMillis(50));
+
+        Connection first = bulkhead.getConnection();
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        try (Connection second = bulkhead.getConnection()) {
+            assertThat(second.isValid(1)).isTrue();
+        }
+        try (Connection third = bulkhead.getConnection()) {
+            assertThat(third.isClosed()).isFalse();
+        }
+    }
+
+    @Test
+    void testPermitsDefaultToPoolSizeBeforePoolStarts() {
+        DataSourceBulkheadPostProcessor processor = new DataSourceBulkheadPostProcessor(0, Duration.ofSeconds(1));
+        HikariDataSource hikari = new HikariDataSource();
+
+        Object wrapped = processor.postProcessAfterInitialization(hikari, "dataSource");
+        assertThat(wrapped).isInstanceOf(BulkheadDataSource.class);
+        assertThat(((BulkheadDataSource) wrapped).getMaxConcurrent()).isEqualTo(10);
+
+        hikari.setMaximumPoolSize(4);
+        wrapped = processor.postProcessAfterInitialization(hikari, "dataSource");
+        assertThat(((BulkheadDataSource) wrapped).getMaxConcurrent()).isEqualTo(4);
+        assertThat(processor.postProcessAfterInitialization(wrapped, "dataSource")).isSameAs(wrapped);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.db;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.storage.db.BulkheadDataSource;
+import ru.yandex.practicum.filmorate.storage.db.MeteredDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:wrappers;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=7",
+        "filmorate.jdbc.metrics.enabled=true",
+        "filmorate.jdbc.bulkhead.enabled=true"
+})
+class DataSourceWrappersTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testBulkheadMatchesPoolSizeUnderMetricsWrapper() {
+        assertThat(dataSource).isInstanceOf(BulkheadDataSource.class);
+        BulkheadDataSource bulkhead = (BulkheadDataSource) dataSource;
+        assertThat(bulkhead.getTargetDataSource()).isInstanceOf(MeteredDataSource.class);
+        assertThat(bulkhead.getMaxConcurrent()).isEqualTo(7);
+    }
+}
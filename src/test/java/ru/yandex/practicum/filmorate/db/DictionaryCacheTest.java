@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({DictionaryCache.class, GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class})
+class DictionaryCacheTest {
+
+    @Autowired
+    private DictionaryCache dictionaryCache;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dictionaryCache.load();
+    }
+
+    @Test
+    void testLookupsAreServedFromCache() {
+        long hits = dictionaryCache.getHits();
+
+        assertThat(dictionaryCache.getGenre(1).getName()).isEqualTo("Комедия");
+        assertThat(dictionaryCache.getRating(3).getName()).isEqualTo("PG-13");
+        assertThat(dictionaryCache.findAllGenres()).hasSize(6);
+        assertThat(dictionaryCache.findAllRatings()).hasSize(5);
+        assertThat(dictionaryCache.getHits()).isEqualTo(hits + 2);
+    }
+
+    @Test
+    void testUnknownIdIsMissAndNotFound() {
+        long misses = dictionaryCache.getMisses();
+
+        assertThatThrownBy(() -> dictionaryCache.getGenre(100)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> dictionaryCache.getRating(-1)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> dictionaryCache.validateGenres(List.of(new Genre(1L, null), new Genre(100L, null))))
+                .isInstanceOf(NotFoundException.class);
+        assertThat(dictionaryCache.getMisses()).isEqualTo(misses + 3);
+    }
+
+    @Test
+    void testUnknownIdIsNotQueriedUntilRefresh() {
+        jdbc.update("INSERT INTO genres (genre_id, name) VALUES (?, ?)", 50, "Вестерн");
+
+        assertThatThrownBy(() -> dictionaryCache.getGenre(50)).isInstanceOf(NotFoundException.class);
+        assertThat(dictionaryCache.findAllGenres()).hasSize(6);
+
+        dictionaryCache.refresh();
+        assertThat(dictionaryCache.getGenre(50).getName()).isEqualTo("Вестерн");
+        assertThat(dictionaryCache.findAllGenres()).hasSize(7);
+
+        jdbc.update("UPDATE genres SET name = ? WHERE genre_id = ?", "Спагетти-вестерн", 50);
+        assertThat(dictionaryCache.getGenre(50).getName()).isEqualTo("Вестерн");
+
+        dictionaryCache.refresh();
+        assertThat(dictionaryCache.getGenre(50).getName()).isEqualTo("Спагетти-вестерн");
+    }
+}
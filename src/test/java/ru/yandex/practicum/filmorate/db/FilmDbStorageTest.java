@@ -5,33 +5,49 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
 import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
 import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
 import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
 import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
 import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
 import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @Import({FilmDbStorage.class, FilmRowMapper.class,
         GenresDbStorage.class, GenreRowMapper.class,
-        RatingDbStorage.class, RatingRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
         LikesDbStorage.class, LikeRowMapper.class})
 class FilmDbStorageTest {
 
     @Autowired
     private FilmDbStorage filmStorage;
 
+    @Autowired
+    private LikesDbStorage likesStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
     @Test
     void testFindFilmById() {
         Film film = Film.builder()
@@ -106,4 +122,234 @@ class FilmDbStorageTest {
         assertThat(filmOptional.get().getName()).isEqualTo("Updated Title");
         assertThat(filmOptional.get().getDescription()).isEqualTo("Updated Description");
     }
+
+    @Test
+    void testFindPopular() {
+        Film unpopularFilm = filmStorage.create(Film.builder()
+                .name("Unpopular")
+                .description("Nobody likes it")
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(90)
+                .mpa(new Rating(1L, "G"))
+                .build());
+        Film popularFilm = filmStorage.create(Film.builder()
+                .name("Popular")
+                .description("Everybody likes it")
+                .releaseDate(LocalDate.of(2002, 2, 2))
+                .duration(100)
+                .mpa(new Rating(2L, "PG"))
+                .genres(List.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")))
+                .build());
+        filmStorage.addLike(popularFilm.getId(), 1);
+
+        List<Film> popularFilms = filmStorage.findPopular(2);
+
+        assertThat(popularFilms).hasSize(2);
+        assertThat(popularFilms.get(0).getId()).isEqualTo(popularFilm.getId());
+        assertThat(popularFilms.get(0).getMpa().getName()).isEqualTo("PG");
+        assertThat(popularFilms.get(0).getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(popularFilms.get(1).getId()).isEqualTo(unpopularFilm.getId());
+        assertThat(popularFilms.get(1).getGenres()).isEmpty();
+    }
+
+    @Test
+    void testLikeCountFollowsLikes() {
+        Film film = filmStorage.create(Film.builder()
+                .name("Counted")
+                .description("Counted likes")
+                .releaseDate(LocalDate.of(2003, 3, 3))
+                .duration(110)
+                .mpa(new Rating(1L, "G"))
+                .build());
+
+        filmStorage.addLike(film.getId(), 1);
+        assertThat(filmStorage.findFilmById(film.getId()).getLikeCount()).isEqualTo(1);
+
+        filmStorage.deleteLike(film.getId(), 1);
+        assertThat(filmStorage.findFilmById(film.getId()).getLikeCount()).isZero();
+    }
+
+    @Test
+    void testRecountLikes() {
+        Film film = filmStorage.create(Film.builder()
+                .name("Recounted")
+                .description("Likes inserted behind the counter")
+                .releaseDate(LocalDate.of(2004, 4, 4))
+                .duration(95)
+                .mpa(new Rating(1L, "G"))
+                .build());
+        jdbc.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", film.getId(), 1);
+
+        assertThat(likesStorage.recountLikes()).isEqualTo(1);
+        assertThat(filmStorage.findFilmById(film.getId()).getLikeCount()).isEqualTo(1);
+        assertThat(likesStorage.recountLikes()).isZero();
+    }
+
+    @Test
+    void testAddLikeIsIdempotent() {
+        Film film = filmStorage.create(Film.builder()
+                .name("Liked twice")
+                .description("Same user likes it twice")
+                .releaseDate(LocalDate.of(2005, 5, 5))
+                .duration(105)
+                .mpa(new Rating(1L, "G"))
+                .build());
+
+        assertThat(filmStorage.addLike(film.getId(), 1)).isEqualTo(1);
+        assertThat(filmStorage.addLike(film.getId(), 1)).isZero();
+        assertThat(filmStorage.findFilmLikes(film.getId())).hasSize(1);
+        assertThat(filmStorage.findFilmById(film.getId()).getLikeCount()).isEqualTo(1);
+
+        assertThat(filmStorage.deleteLike(film.getId(), 1).orElseThrow().getCreatedAt()).isNotNull();
+        assertThat(filmStorage.deleteLike(film.getId(), 1)).isEmpty();
+        assertThat(filmStorage.findFilmById(film.getId()).getLikeCount()).isZero();
+    }
+
+    @Test
+    void testAddLikeOfUnknownUserFails() {
+        Film film = filmStorage.create(Film.builder()
+                .name("Orphan like")
+                .description("Liked by nobody")
+                .releaseDate(LocalDate.of(2006, 6, 6))
+                .duration(90)
+                .mpa(new Rating(1L, "G"))
+                .build());
+
+        assertThatThrownBy(() -> filmStorage.addLike(film.getId(), 9999))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void testUpdateFilmGenres() {
+        Film film = filmStorage.create(Film.builder()
+                .name("Genres")
+                .description("Genres change")
+                .releaseDate(LocalDate.of(2007, 7, 7))
+                .duration(120)
+                .mpa(new Rating(1L, "G"))
+                .genres(List.of(new Genre(1L, null), new Genre(2L, null), new Genre(2L, null)))
+                .build());
+        assertThat(filmStorage.findFilmById(film.getId()).getGenres()).extracting(Genre::getId)
+                .containsExactly(1L, 2L);
+
+        film.setGenres(List.of(new Genre(3L, null), new Genre(2L, null)));
+        filmStorage.update(film);
+        assertThat(filmStorage.findFilmById(film.getId()).getGenres()).extracting(Genre::getId)
+                .containsExactly(2L, 3L);
+
+        film.setGenres(List.of(new Genre(1L, null), new Genre(999L, null)));
+        assertThatThrownBy(() -> filmStorage.update(film)).isInstanceOf(NotFoundException.class);
+        assertThat(filmStorage.findFilmById(film.getId()).getGenres()).extracting(Genre::getId)
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void testFindAllLoadsGenresAndMpa() {
+        Film withGenres = filmStorage.create(Film.builder()
+                .name("With genres")
+                .description("Two genres")
+                .releaseDate(LocalDate.of(2008, 8, 8))
+                .duration(100)
+                .mpa(new Rating(4L, "R"))
+                .genres(List.of(new Genre(5L, null), new Genre(1L, null)))
+                .build());
+        Film withoutGenres = filmStorage.create(Film.builder()
+                .name("Without genres")
+                .description("No genres")
+                .releaseDate(LocalDate.of(2009, 9, 9))
+                .duration(100)
+                .mpa(new Rating(5L, "NC-17"))
+                .build());
+
+        List<Film> films = List.copyOf(filmStorage.findAll());
+
+        assertThat(films).extracting(Film::getId).containsExactly(withGenres.getId(), withoutGenres.getId());
+        assertThat(films.get(0).getMpa().getName()).isEqualTo("R");
+        assertThat(films.get(0).getGenres()).extracting(Genre::getName).containsExactly("Комедия", "Документальный");
+        assertThat(films.get(1).getMpa().getName()).isEqualTo("NC-17");
+        assertThat(films.get(1).getGenres()).isEmpty();
+    }
+
+    @Test
+    void testFindPage() {
+        for (int i = 0; i < 3; i++) {
+            filmStorage.create(Film.builder()
+                    .name("Page " + i)
+                    .description("Paged film")
+                    .releaseDate(LocalDate.of(2010, 1, 1))
+                    .duration(100)
+                    .mpa(new Rating(1L, "G"))
+                    .genres(List.of(new Genre(2L, null)))
+                    .build());
+        }
+
+        List<Film> firstPage = filmStorage.findPage(0, 2);
+        List<Film> secondPage = filmStorage.findPage(firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(secondPage).hasSize(1);
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.get(1).getId());
+        assertThat(secondPage.get(0).getGenres()).extracting(Genre::getId).containsExactly(2L);
+    }
+
+    @Test
+    void testStreamAll() {
+        Film first = filmStorage.create(Film.builder()
+                .name("Streamed first")
+                .description("Three genres")
+                .releaseDate(LocalDate.of(2011, 1, 1))
+                .duration(100)
+                .mpa(new Rating(1L, "G"))
+                .genres(List.of(new Genre(3L, null), new Genre(1L, null), new Genre(2L, null)))
+                .build());
+        Film second = filmStorage.create(Film.builder()
+                .name("Streamed second")
+                .description("No genres")
+                .releaseDate(LocalDate.of(2012, 1, 1))
+                .duration(100)
+                .mpa(new Rating(2L, "PG"))
+                .build());
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+
+        assertThat(streamed).extracting(Film::getId).containsExactly(first.getId(), second.getId());
+        assertThat(streamed.get(0).getGenres()).extracting(Genre::getId).containsExactly(1L, 2L, 3L);
+        assertThat(streamed.get(1).getGenres()).isEmpty();
+        assertThat(streamed.get(1).getMpa().getName()).isEqualTo("PG");
+    }
+
+    @Test
+    void testCreateAllAndAddLikes() {
+        List<Film> films = filmStorage.createAll(List.of(
+                Film.builder()
+                        .name("Batch first")
+                        .description("Imported")
+                        .releaseDate(LocalDate.of(2013, 1, 1))
+                        .duration(100)
+                        .mpa(new Rating(1L, null))
+                        .genres(List.of(new Genre(4L, null)))
+                        .build(),
+                Film.builder()
+                        .name("Batch second")
+                        .description("Imported")
+                        .releaseDate(LocalDate.of(2014, 1, 1))
+                        .duration(100)
+                        .mpa(new Rating(2L, null))
+                        .build()));
+        long firstId = films.get(0).getId();
+        long secondId = films.get(1).getId();
+
+        assertThat(secondId).isGreaterThan(firstId);
+        assertThat(filmStorage.findFilmById(firstId).getGenres()).extracting(Genre::getId).containsExactly(4L);
+        assertThat(filmStorage.findExistingIds(List.of(firstId, secondId, 9999L)))
+                .containsExactlyInAnyOrder(firstId, secondId);
+
+        Map<Long, Integer> added = filmStorage.addLikes(List.of(
+                Like.builder().filmId(secondId).userId(1L).build(),
+                Like.builder().filmId(secondId).userId(1L).build()));
+
+        assertThat(added).containsExactly(Map.entry(secondId, 1));
+        assertThat(filmStorage.findFilmById(secondId).getLikeCount()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.db;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.db.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FriendDbStorage.class, UserDbStorage.class, UserRowMapper.class})
+class FriendDbStorageTest {
+
+    @Autowired
+    private FriendDbStorage friendStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testFindCommonFriends() {
+        long first = createUser("first").getId();
+        long second = createUser("second").getId();
+        long commonA = createUser("commonA").getId();
+        long commonB = createUser("commonB").getId();
+        long onlyFirst = createUser("onlyFirst").getId();
+
+        friendStorage.addFriend(first, commonB);
+        friendStorage.addFriend(first, commonA);
+        friendStorage.addFriend(first, onlyFirst);
+        friendStorage.addFriend(second, commonA);
+        friendStorage.addFriend(second, commonB);
+        friendStorage.addFriend(onlyFirst, second);
+
+        assertThat(friendStorage.findCommonFriends(first, second))
+                .extracting(User::getId)
+                .containsExactly(commonA, commonB);
+        assertThat(friendStorage.countCommonFriends(first, second)).isEqualTo(2);
+        assertThat(friendStorage.countCommonFriends(first, onlyFirst)).isZero();
+    }
+
+    @Test
+    void testAddFriendIsIdempotent() {
+        long user = createUser("follower").getId();
+        long friend = createUser("followed").getId();
+
+        friendStorage.addFriend(user, friend);
+        friendStorage.addFriend(user, friend);
+
+        assertThat(friendStorage.getUserFriends(user)).extracting(User::getId).containsExactly(friend);
+        assertThatThrownBy(() -> jdbc.update("INSERT INTO friends (user_id, friend_id) VALUES (?, ?)", user, friend))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    private User createUser(String login) {
+        return userStorage.create(User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+}
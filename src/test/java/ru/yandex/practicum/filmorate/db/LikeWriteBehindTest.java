@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikeWriteBehind;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval=1h",
+        "filmorate.likes.write-behind.batch-size=1000"
+})
+@AutoConfigureTestDatabase
+@Import({FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class, LikeWriteBehind.class})
+class LikeWriteBehindTest {
+    private static final String COUNT_LIKES = "SELECT COUNT(*) FROM likes WHERE film_id = ?";
+    private static final String LIKE_COUNT = "SELECT like_count FROM films WHERE id = ?";
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private LikeWriteBehind writeBehind;
+
+    @Autowired
+    private LikesDbStorage likesStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long filmId;
+    private long firstUserId;
+    private long secondUserId;
+
+    @BeforeEach
+    void setUp() {
+        filmId = filmStorage.create(Film.builder()
+                .name("Write-behind")
+                .description("Likes are written in batches")
+                .releaseDate(LocalDate.of(2006, 6, 6))
+                .duration(100)
+                .mpa(new Rating(1L, "G"))
+                .build()).getId();
+        firstUserId = createUser("first");
+        secondUserId = createUser("second");
+    }
+
+    @Test
+    void testLikesAreCollapsedUntilFlush() {
+        assertThat(filmStorage.addLike(filmId, firstUserId)).isEqualTo(1);
+        assertThat(filmStorage.addLike(filmId, firstUserId)).isZero();
+        assertThat(filmStorage.addLike(filmId, secondUserId)).isEqualTo(1);
+        assertThat(filmStorage.deleteLike(filmId, secondUserId).orElseThrow().getCreatedAt()).isNotNull();
+
+        assertThat(writeBehind.getPending()).isEqualTo(1);
+        assertThat(jdbc.queryForObject(COUNT_LIKES, Integer.class, filmId)).isZero();
+        assertThat(filmStorage.findFilmById(filmId).getLikeCount()).isEqualTo(1);
+        assertThat(filmStorage.findLike(filmId, firstUserId)).isPresent();
+        assertThat(filmStorage.findLike(filmId, secondUserId)).isEmpty();
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getPending()).isZero();
+        assertThat(jdbc.queryForObject(COUNT_LIKES, Integer.class, filmId)).isEqualTo(1);
+        assertThat(jdbc.queryForObject(LIKE_COUNT, Integer.class, filmId)).isEqualTo(1);
+        assertThat(filmStorage.findFilmById(filmId).getLikeCount()).isEqualTo(1);
+        assertThat(filmStorage.findLike(filmId, firstUserId).orElseThrow().getCreatedAt()).isNotNull();
+
+        assertThat(filmStorage.deleteLike(filmId, firstUserId).orElseThrow().getCreatedAt()).isNotNull();
+        assertThat(filmStorage.addLike(filmId, firstUserId)).isEqualTo(1);
+        assertThat(writeBehind.getPending()).isZero();
+
+        assertThat(filmStorage.deleteLike(filmId, firstUserId)).isPresent();
+        assertThat(filmStorage.findFilmsByIds(List.of(filmId)).get(0).getLikeCount()).isZero();
+        writeBehind.flush();
+        assertThat(jdbc.queryForObject(LIKE_COUNT, Integer.class, filmId)).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testMissingUserIsRejectedAndDeletedUserIsDroppedOnFlush() {
+        assertThatThrownBy(() -> filmStorage.addLike(filmId, 9999))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        filmStorage.addLike(filmId, firstUserId);
+        filmStorage.addLike(filmId, secondUserId);
+        jdbc.update("DELETE FROM users WHERE id = ?", secondUserId);
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.getPending()).isZero();
+        assertThat(jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = ?", Long.class, filmId))
+                .containsExactly(firstUserId);
+        assertThat(jdbc.queryForObject(LIKE_COUNT, Integer.class, filmId)).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testQueueNeverGrowsPastCapacity() throws InterruptedException {
+        LikeWriteBehind bounded = new LikeWriteBehind(likesStorage, Duration.ofHours(1), 2, 2);
+        for (int i = 0; i < 5; i++) {
+            assertThat(bounded.addLike(filmId, createUser("capacity" + i))).isEqualTo(1);
+            assertThat(bounded.getPending()).isLessThanOrEqualTo(2);
+        }
+        bounded.close();
+
+        assertThat(bounded.getPending()).isZero();
+        assertThat(jdbc.queryForObject(COUNT_LIKES, Integer.class, filmId)).isEqualTo(5);
+        assertThat(jdbc.queryForObject(LIKE_COUNT, Integer.class, filmId)).isEqualTo(5);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testCloseDrainsQueueAndLaterChangesAreWrittenImmediately() throws InterruptedException {
+        LikeWriteBehind closing = new LikeWriteBehind(likesStorage, Duration.ofHours(1), 2, 2);
+        closing.addLike(filmId, firstUserId);
+        assertThat(closing.getPending()).isEqualTo(1);
+
+        closing.close();
+
+        assertThat(closing.getPending()).isZero();
+        assertThat(jdbc.queryForObject(COUNT_LIKES, Integer.class, filmId)).isEqualTo(1);
+
+        assertThat(closing.addLike(filmId, secondUserId)).isEqualTo(1);
+        assertThat(closing.getPending()).isZero();
+        assertThat(closing.deleteLike(filmId, firstUserId)).isPresent();
+        assertThat(closing.getPending()).isZero();
+        assertThat(jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = ?", Long.class, filmId))
+                .containsExactly(secondUserId);
+        assertThat(jdbc.queryForObject(LIKE_COUNT, Integer.class, filmId)).isEqualTo(1);
+    }
+
+    private long createUser(String login) {
+        jdbc.update("INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)",
+                login, login + "@example.com", login, LocalDate.of(1990, 1, 1));
+        return jdbc.queryForObject("SELECT MAX(id) FROM users", Long.class);
+    }
+}
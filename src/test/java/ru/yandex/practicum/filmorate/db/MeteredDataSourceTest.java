@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.db;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.controller.QueryCountHeaderAdvice;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.MeteredDataSource;
+import ru.yandex.practicum.filmorate.storage.db.QueryCounter;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+class MeteredDataSourceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testQueriesAreTimedAndCountedByStorageMethod() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JdbcTemplate jdbc = new JdbcTemplate(new MeteredDataSource(dataSource, () -> registry));
+        GenresDbStorage genresStorage = new GenresDbStorage(jdbc, new GenreRowMapper());
+
+        QueryCounter.start();
+        int genres = genresStorage.findAll().size();
+        genresStorage.findAll();
+        jdbc.queryForObject("SELECT COUNT(*) FROM genres", Integer.class);
+        jdbc.queryForObject("SELECT COUNT(*) FROM genres WHERE genre_id > ?", Integer.class, 0);
+        jdbc.queryForObject("SELECT COUNT(*) FROM genres WHERE genre_id > ?", Integer.class, 1);
+
+        assertThat(QueryCounter.finish()).isEqualTo(5);
+        assertThat(registry.get("filmorate.jdbc.query").tag("query", "GenresDbStorage.findAll").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get("filmorate.jdbc.rows").tag("query", "GenresDbStorage.findAll").summary()
+                .totalAmount()).isEqualTo(2.0 * genres);
+        assertThat(registry.get("filmorate.jdbc.query").tag("query", "other").timer().count()).isEqualTo(3);
+        assertThat(QueryCounter.current()).isZero();
+    }
+
+    @Test
+    void testQueryCountHeaderNeedsMetrics() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(QueryCountHeaderAdvice.class);
+
+        runner.withPropertyValues("filmorate.jdbc.metrics.query-count-header=true")
+                .run(context -> assertThat(context).doesNotHaveBean(QueryCountHeaderAdvice.class));
+        runner.withPropertyValues("filmorate.jdbc.metrics.query-count-header=true",
+                        "filmorate.jdbc.metrics.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(QueryCountHeaderAdvice.class));
+    }
+}
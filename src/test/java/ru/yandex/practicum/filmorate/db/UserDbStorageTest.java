@@ -10,6 +10,7 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -81,4 +82,47 @@ class UserDbStorageTest {
         assertThat(userOptional.get().getEmail()).isEqualTo("updated@example.com");
         assertThat(userOptional.get().getName()).isEqualTo("Updated Name");
     }
+
+    @Test
+    void testFindPage() {
+        for (int i = 0; i < 3; i++) {
+            userStorage.create(User.builder()
+                    .email("page" + i + "@example.com")
+                    .login("page" + i)
+                    .name("Page " + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        List<Long> allIds = userStorage.findAll().stream().map(User::getId).sorted().toList();
+
+        List<User> firstPage = userStorage.findPage(0, 2);
+        List<User> secondPage = userStorage.findPage(firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage).extracting(User::getId).containsExactlyElementsOf(allIds.subList(0, 2));
+        assertThat(secondPage).extracting(User::getId).containsExactlyElementsOf(allIds.subList(2, 4));
+        assertThat(userStorage.findPage(allIds.get(allIds.size() - 1), 2)).isEmpty();
+    }
+
+    @Test
+    void testCreateAll() {
+        List<User> users = userStorage.createAll(List.of(
+                User.builder()
+                        .email("batch1@example.com")
+                        .login("batch1")
+                        .name("Batch 1")
+                        .birthday(LocalDate.of(1991, 1, 1))
+                        .build(),
+                User.builder()
+                        .email("batch2@example.com")
+                        .login("batch2")
+                        .name("Batch 2")
+                        .birthday(LocalDate.of(1992, 2, 2))
+                        .build()));
+
+        assertThat(users).extracting(User::getId).doesNotContainNull();
+        assertThat(userStorage.getUserById(users.get(1).getId()))
+                .hasValueSatisfying(user -> assertThat(user.getLogin()).isEqualTo("batch2"));
+        assertThat(userStorage.findExistingIds(List.of(1L, users.get(0).getId(), 9999L)))
+                .containsExactlyInAnyOrder(1L, users.get(0).getId());
+    }
 }
@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate.mem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+import ru.yandex.practicum.filmorate.storage.mem.MemFilmStorage;
+import ru.yandex.practicum.filmorate.storage.mem.MemFriendStorage;
+import ru.yandex.practicum.filmorate.storage.mem.MemUserStorage;
+import ru.yandex.practicum.filmorate.storage.mem.MemoryStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({DictionaryCache.class, GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class})
+class MemoryStorageTest {
+
+    @Autowired
+    private DictionaryCache dictionaryCache;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void testJournalIsReplayedAfterRestart() throws IOException, InterruptedException {
+        MemoryStore store = open(2);
+        MemFilmStorage films = new MemFilmStorage(store, dictionaryCache);
+        MemUserStorage users = new MemUserStorage(store);
+        MemFriendStorage friends = new MemFriendStorage(store);
+
+        Film film = films.create(film("Память", 2L, 3L, 1L));
+        User first = users.create(user("first"));
+        User second = users.create(user("second"));
+        films.addLike(film.getId(), first.getId());
+        films.addLike(film.getId(), second.getId());
+        friends.addFriend(first.getId(), second.getId());
+        assertThatThrownBy(() -> films.addLike(film.getId(), 999))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        users.delete(second.getId());
+        store.awaitSnapshot();
+        Files.write(dir.resolve("filmorate.wal"), new byte[]{0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+        MemoryStore reopened = open(2);
+        MemFilmStorage reopenedFilms = new MemFilmStorage(reopened, dictionaryCache);
+        Film loaded = reopenedFilms.findFilmById(film.getId());
+        assertThat(loaded.getName()).isEqualTo("Память");
+        assertThat(loaded.getMpa().getId()).isEqualTo(2L);
+        assertThat(loaded.getGenres()).extracting(Genre::getId).containsExactly(1L, 3L);
+        assertThat(loaded.getLikeCount()).isEqualTo(1);
+        assertThat(reopenedFilms.findLike(film.getId(), first.getId())).isPresent();
+        assertThat(reopenedFilms.deleteLike(film.getId(), first.getId()).orElseThrow().getCreatedAt()).isNotNull();
+        assertThat(reopenedFilms.deleteLike(film.getId(), first.getId())).isEmpty();
+        assertThat(new MemUserStorage(reopened).getUserById(second.getId())).isEmpty();
+        assertThat(new MemFriendStorage(reopened).getUserFriends(first.getId())).isEmpty();
+        assertThat(new MemUserStorage(reopened).create(user("third")).getId()).isEqualTo(second.getId() + 1);
+        reopened.close();
+        store.close();
+    }
+
+    @Test
+    void testZeroFilledAndTornTailIsTruncated() throws IOException, InterruptedException {
+        MemoryStore store = open(100_000);
+        Film film = new MemFilmStorage(store, dictionaryCache).create(film("Хвост", 1L));
+        User user = new MemUserStorage(store).create(user("tail"));
+        new MemFilmStorage(store, dictionaryCache).addLike(film.getId(), user.getId());
+        store.close();
+        Path journal = dir.resolve("filmorate.wal");
+        long size = Files.size(journal);
+        Files.write(journal, new byte[64], StandardOpenOption.APPEND);
+        Files.write(journal, new byte[]{0x7f, -1, -1, -1, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        MemoryStore reopened = open(100_000);
+        assertThat(Files.size(journal)).isEqualTo(size);
+        assertThat(new MemFilmStorage(reopened, dictionaryCache).findFilmById(film.getId()).getLikeCount())
+                .isEqualTo(1);
+        reopened.close();
+
+        Files.write(journal, new byte[]{0x7f, -1, -1, -1, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        MemoryStore again = open(100_000);
+        assertThat(Files.size(journal)).isEqualTo(size);
+        assertThat(new MemUserStorage(again).create(user("after")).getId()).isEqualTo(user.getId() + 1);
+        again.close();
+    }
+
+    @Test
+    void testSnapshotKeepsDataAndSequences() throws IOException, InterruptedException {
+        MemoryStore store = open(100_000);
+        MemFilmStorage films = new MemFilmStorage(store, dictionaryCache);
+        MemUserStorage users = new MemUserStorage(store);
+        List<Film> created = films.createAll(List.of(film("Первый", 1L), film("Второй", 1L), film("Третий", 1L)));
+        User user = users.create(user("snapshot"));
+        films.addLike(created.get(1).getId(), user.getId());
+        films.delete(created.get(2).getId());
+        store.close();
+
+        assertThat(Files.size(dir.resolve("filmorate.wal"))).isZero();
+        MemoryStore reopened = open(100_000);
+        MemFilmStorage reopenedFilms = new MemFilmStorage(reopened, dictionaryCache);
+        assertThat(reopenedFilms.findPopular(10)).extracting(Film::getId)
+                .containsExactly(created.get(1).getId(), created.get(0).getId());
+        assertThat(reopenedFilms.create(film("Четвёртый", 1L)).getId()).isEqualTo(created.get(2).getId() + 1);
+        reopened.close();
+    }
+
+    @Test
+    void testBackgroundSnapshotSkipsCoveredSegments() throws IOException, InterruptedException {
+        MemoryStore store = open(10);
+        MemFilmStorage films = new MemFilmStorage(store, dictionaryCache);
+        User user = new MemUserStorage(store).create(user("segments"));
+        List<Film> created = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            created.add(films.create(film("Сегмент " + i, 1L)));
+        }
+        films.addLike(created.get(11).getId(), user.getId());
+        store.awaitSnapshot();
+        Path journal = dir.resolve("filmorate.wal");
+        assertThat(Files.size(journal)).isPositive();
+        assertThat(dir.resolve("filmorate.wal.1")).doesNotExist();
+        Files.copy(journal, dir.resolve("filmorate.wal.1000"));
+        Files.write(journal, new byte[0]);
+        Files.write(dir.resolve("filmorate.wal.1"), new byte[]{0, 0, 0, 42, 1});
+
+        MemoryStore reopened = open(10);
+        MemFilmStorage reopenedFilms = new MemFilmStorage(reopened, dictionaryCache);
+        assertThat(dir.resolve("filmorate.wal.1")).doesNotExist();
+        assertThat(reopenedFilms.findFilmById(created.get(11).getId()).getLikeCount()).isEqualTo(1);
+        assertThat(reopenedFilms.create(film("После", 1L)).getId()).isEqualTo(created.get(11).getId() + 1);
+        reopened.close();
+
+        MemoryStore again = open(10);
+        assertThat(new MemFilmStorage(again, dictionaryCache).findPage(0, 100)).hasSize(13);
+        again.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .containsExactlyInAnyOrder("filmorate.wal", "filmorate.snapshot");
+        }
+    }
+
+    @Test
+    void testPagesPopularAndLikeCounts() throws IOException, InterruptedException {
+        MemoryStore store = open(100_000);
+        MemFilmStorage films = new MemFilmStorage(store, dictionaryCache);
+        MemUserStorage users = new MemUserStorage(store);
+        List<Film> created = films.createAll(List.of(film("Первый", 1L), film("Второй", 1L), film("Третий", 1L)));
+        User first = users.create(user("first"));
+        User second = users.create(user("second"));
+        films.addLike(created.get(2).getId(), first.getId());
+        films.addLike(created.get(2).getId(), second.getId());
+        films.addLike(created.get(0).getId(), first.getId());
+        films.delete(created.get(1).getId());
+
+        assertThat(films.findPage(0, 1)).extracting(Film::getId).containsExactly(created.get(0).getId());
+        assertThat(films.findPage(created.get(0).getId(), 5)).extracting(Film::getId)
+                .containsExactly(created.get(2).getId());
+        assertThat(users.findPage(first.getId(), 5)).extracting(User::getId).containsExactly(second.getId());
+        assertThat(films.findPopular(Integer.MAX_VALUE)).extracting(Film::getId)
+                .containsExactly(created.get(2).getId(), created.get(0).getId());
+        assertThat(films.countLikesByFilm())
+                .containsExactlyInAnyOrderEntriesOf(Map.of(created.get(0).getId(), 1, created.get(2).getId(), 2));
+        assertThat(films.recountLikes()).isZero();
+        store.close();
+    }
+
+    private MemoryStore open(long snapshotEvery) throws IOException {
+        MemoryStore store = new MemoryStore(dir.toString(), snapshotEvery, false);
+        store.load();
+        return store;
+    }
+
+    private static Film film(String name, long ratingId, Long... genreIds) {
+        return Film.builder()
+                .name(name)
+                .description(name)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Rating(ratingId, null))
+                .genres(Arrays.stream(genreIds).map(id -> new Genre(id, null)).toList())
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmPopularityIndex.class, FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class})
+class FilmPopularityIndexTest {
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        popularityIndex.rebuild();
+    }
+
+    @Test
+    void testFindTopFollowsLikeChanges() {
+        Film first = createFilm("First");
+        Film second = createFilm("Second");
+
+        popularityIndex.applyLikeChange(second.getId(), () -> filmStorage.addLike(second.getId(), 1));
+
+        assertThat(popularityIndex.findTop(2)).containsExactly(second.getId(), first.getId());
+        assertThat(popularityIndex.getLikes(second.getId())).isEqualTo(1);
+
+        popularityIndex.applyLikeChange(second.getId(), () -> filmStorage.deleteLike(second.getId(), 1).isPresent() ? -1 : 0);
+
+        assertThat(popularityIndex.findTop(2)).containsExactly(first.getId(), second.getId());
+        assertThat(popularityIndex.getLikes(second.getId())).isZero();
+        assertThat(popularityIndex.checkConsistency()).isEmpty();
+    }
+
+    @Test
+    void testCheckConsistencyAndRebuild() {
+        Film film = createFilm("Liked behind the index");
+        jdbc.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", film.getId(), 1);
+
+        assertThat(popularityIndex.checkConsistency()).containsExactly(film.getId());
+
+        popularityIndex.rebuild();
+
+        assertThat(popularityIndex.checkConsistency()).isEmpty();
+        assertThat(popularityIndex.findTop(1)).containsExactly(film.getId());
+    }
+
+    @Test
+    void testFindTopByGenreRatingAndYear() {
+        Film comedy = createFilm("Comedy", 2L, 2001, 1L);
+        Film drama = createFilm("Drama", 2L, 2002, 2L);
+        Film comedyDrama = createFilm("Comedy drama", 3L, 2001, 1L, 2L);
+        popularityIndex.applyLikeChange(comedy.getId(), () -> filmStorage.addLike(comedy.getId(), 1));
+
+        assertThat(popularityIndex.findTop(10, 1L, null, null)).get().asList()
+                .startsWith(comedy.getId(), comedyDrama.getId());
+        assertThat(popularityIndex.findTop(10, 2L, 3L, null)).hasValue(List.of(comedyDrama.getId()));
+        assertThat(popularityIndex.findTop(10, null, 2L, 2002)).hasValue(List.of(drama.getId()));
+
+        drama.setGenres(List.of(new Genre(1L, null)));
+        popularityIndex.updateFilm(drama);
+
+        assertThat(popularityIndex.findTop(10, 2L, null, null)).get().asList()
+                .doesNotContain(drama.getId())
+                .contains(comedyDrama.getId());
+        assertThat(popularityIndex.findTop(10, 1L, 2L, null)).hasValue(List.of(comedy.getId(), drama.getId()));
+        assertThat(filmStorage.findPopular(10, 1L, 2L, 2001)).extracting(Film::getId)
+                .containsExactly(comedy.getId());
+    }
+
+    private Film createFilm(String name) {
+        return createFilm(name, 1L, 2000);
+    }
+
+    private Film createFilm(String name, long ratingId, int year, Long... genreIds) {
+        Film film = filmStorage.create(Film.builder()
+                .name(name)
+                .description(name)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(100)
+                .mpa(new Rating(ratingId, null))
+                .genres(Arrays.stream(genreIds).map(id -> new Genre(id, null)).toList())
+                .build());
+        popularityIndex.addFilm(film);
+        return film;
+    }
+}
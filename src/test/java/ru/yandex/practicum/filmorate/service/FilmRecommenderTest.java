@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmRecommender.class, FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class, UserDbStorage.class, UserRowMapper.class})
+class FilmRecommenderTest {
+
+    @Autowired
+    private FilmRecommender recommender;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        recommender.rebuild();
+    }
+
+    @Test
+    void testRecommendsFilmsOfMostSimilarUsers() {
+        long user = createUser("recommendUser");
+        long similar = createUser("recommendSimilar");
+        long distant = createUser("recommendDistant");
+        long shared1 = createFilm("Shared 1");
+        long shared2 = createFilm("Shared 2");
+        long fromSimilar = createFilm("From similar");
+        long fromDistant = createFilm("From distant");
+
+        filmStorage.addLike(shared1, user);
+        filmStorage.addLike(shared2, user);
+        filmStorage.addLike(shared1, similar);
+        filmStorage.addLike(shared2, similar);
+        filmStorage.addLike(fromSimilar, similar);
+        filmStorage.addLike(shared1, distant);
+        filmStorage.addLike(fromDistant, distant);
+        recommender.rebuild();
+
+        assertThat(recommender.recommend(user, 10)).containsExactly((int) fromSimilar, (int) fromDistant);
+        assertThat(recommender.recommend(user, 1)).containsExactly((int) fromSimilar);
+
+        recommender.addLike(fromSimilar, user, () -> filmStorage.addLike(fromSimilar, user));
+
+        assertThat(recommender.recommend(user, 10)).containsExactly((int) fromDistant);
+
+        recommender.deleteLike(shared1, distant, () -> filmStorage.deleteLike(shared1, distant).isPresent() ? 1 : 0);
+
+        assertThat(recommender.recommend(user, 10)).isEmpty();
+    }
+
+    private long createUser(String login) {
+        return userStorage.create(User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+
+    private long createFilm(String name) {
+        return filmStorage.create(Film.builder()
+                .name(name)
+                .description(name)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Rating(1L, "G"))
+                .build()).getId();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmSearchIndex.class, FilmPopularityIndex.class, FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class})
+class FilmSearchIndexTest {
+    private static final Set<FilmSearchIndex.Field> ALL_FIELDS = EnumSet.allOf(FilmSearchIndex.Field.class);
+
+    @Autowired
+    private FilmSearchIndex searchIndex;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        popularityIndex.rebuild();
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void testTokenizeNormalizesCyrillic() {
+        assertThat(FilmSearchIndex.tokenize("Ёжик в тумане, 1975!")).containsExactly("ежик", "в", "тумане", "1975");
+    }
+
+    @Test
+    void testSearchRanksTitleAboveDescriptionAndPopularity() {
+        Film inDescription = createFilm("Сказка", "Про ёжика и туман");
+        Film inTitle = createFilm("Ёжик в тумане", "Мультфильм");
+        Film unlikedInTitle = createFilm("Ёжики", "Мультфильм");
+        Film likedInTitle = createFilm("Ёжики", "Мультфильм");
+        popularityIndex.applyLikeChange(likedInTitle.getId(), () -> filmStorage.addLike(likedInTitle.getId(), 1));
+
+        assertThat(searchIndex.search("ежик", ALL_FIELDS, 10))
+                .containsExactly(inTitle.getId(), likedInTitle.getId(), unlikedInTitle.getId(), inDescription.getId());
+        assertThat(searchIndex.search("ЁЖ туман", ALL_FIELDS, 10))
+                .containsExactly(inTitle.getId(), inDescription.getId());
+        assertThat(searchIndex.search("ежик", EnumSet.of(FilmSearchIndex.Field.DESCRIPTION), 10))
+                .containsExactly(inDescription.getId());
+    }
+
+    @Test
+    void testUpdateReplacesTerms() {
+        Film film = createFilm("Старое название", "Описание");
+        film.setName("Новое название");
+        searchIndex.updateFilm(film);
+
+        assertThat(searchIndex.search("старое", ALL_FIELDS, 10)).isEmpty();
+        assertThat(searchIndex.search("нов", ALL_FIELDS, 10)).containsExactly(film.getId());
+    }
+
+    private Film createFilm(String name, String description) {
+        Film film = filmStorage.create(Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new Rating(1L, "G"))
+                .build());
+        searchIndex.addFilm(film);
+        return film;
+    }
+}
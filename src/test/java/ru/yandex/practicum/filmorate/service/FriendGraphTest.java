@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.db.FriendDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FriendGraph.class, FriendDbStorage.class, UserDbStorage.class, UserRowMapper.class})
+class FriendGraphTest {
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendDbStorage friendStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        friendGraph.rebuild();
+    }
+
+    @Test
+    void testWriteThroughAndCommonFriends() {
+        long first = createUser("graphFirst");
+        long second = createUser("graphSecond");
+        long common = createUser("graphCommon");
+
+        addFriend(first, common);
+        addFriend(second, common);
+        addFriend(first, second);
+
+        assertThat(friendGraph.findCommonFriends(first, second)).containsExactly((int) common);
+        assertThat(friendGraph.countCommonFriends(first, second)).isEqualTo(1);
+        assertThat(friendGraph.isFriend(first, second)).isTrue();
+        assertThat(friendGraph.isFriend(second, first)).isFalse();
+        assertThat(friendGraph.getFollowers(common)).containsExactly((int) first, (int) second);
+
+        friendGraph.deleteFriend(first, common, () -> friendStorage.deleteFriend(first, common));
+
+        assertThat(friendGraph.countCommonFriends(first, second)).isZero();
+        assertThat(friendGraph.countFriends(first)).isEqualTo(1);
+    }
+
+    @Test
+    void testRebuildLoadsFriendsAndRemoveUser() {
+        long first = createUser("loadedFirst");
+        long second = createUser("loadedSecond");
+        friendStorage.addFriend(first, second);
+        friendStorage.addFriend(second, first);
+
+        friendGraph.rebuild();
+
+        assertThat(friendGraph.getFriends(first)).containsExactly((int) second);
+        assertThat(friendGraph.getFriends(second)).containsExactly((int) first);
+
+        friendGraph.removeUser(second, () -> userStorage.delete(second));
+
+        assertThat(friendGraph.countFriends(first)).isZero();
+        assertThat(friendGraph.getFollowers(first)).isEmpty();
+    }
+
+    @Test
+    void testSuggestFriendsRanksByMutualFriends() {
+        long user = createUser("suggestUser");
+        long friendA = createUser("suggestFriendA");
+        long friendB = createUser("suggestFriendB");
+        long popular = createUser("suggestPopular");
+        long rare = createUser("suggestRare");
+
+        addFriend(user, friendA);
+        addFriend(user, friendB);
+        addFriend(friendA, rare);
+        addFriend(friendA, popular);
+        addFriend(friendB, popular);
+        addFriend(friendB, user);
+
+        assertThat(friendGraph.suggestFriends(user, 10)).containsExactly((int) popular, (int) rare);
+        assertThat(friendGraph.suggestFriends(user, 1)).containsExactly((int) popular);
+
+        addFriend(user, popular);
+
+        assertThat(friendGraph.suggestFriends(user, 10)).containsExactly((int) rare);
+
+        addFriend(friendB, rare);
+
+        assertThat(friendGraph.suggestFriends(user, 10)).containsExactly((int) rare);
+        assertThat(friendGraph.suggestFriends(friendB, 10)).containsExactly((int) friendA);
+    }
+
+    @Test
+    void testConcurrentDeleteWaitsForAddToReachGraph() throws Exception {
+        long user = createUser("raceUser");
+        long friend = createUser("raceFriend");
+        AtomicBoolean stored = new AtomicBoolean();
+        CountDownLatch deleted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            friendGraph.addFriend(user, friend, () -> {
+                stored.set(true);
+                executor.execute(() -> {
+                    friendGraph.deleteFriend(user, friend, () -> stored.set(false));
+                    deleted.countDown();
+                });
+                awaitQuietly(deleted);
+            });
+            assertThat(deleted.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(stored.get()).isFalse();
+        assertThat(friendGraph.isFriend(user, friend)).isFalse();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(200, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addFriend(long userId, long friendId) {
+        friendGraph.addFriend(userId, friendId, () -> friendStorage.addFriend(userId, friendId));
+    }
+
+    private long createUser(String login) {
+        return userStorage.create(User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build()).getId();
+    }
+}
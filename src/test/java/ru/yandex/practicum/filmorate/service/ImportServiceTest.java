@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.ImportError;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "filmorate.import.chunk-size=10")
+@AutoConfigureTestDatabase
+class ImportServiceTest {
+    private static final String LONG_NAME = "x".repeat(300);
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testUsersWithoutNameGetLoginAndRejectedRowsDoNotFailChunk() throws IOException {
+        ImportResult result = importService.importUsers(ndjson(
+                "{\"email\":\"noname@mail.ru\",\"login\":\"importNoName\",\"birthday\":\"1990-01-01\"}",
+                "{\"name\":\"" + LONG_NAME + "\",\"email\":\"long@mail.ru\",\"login\":\"importLong\","
+                        + "\"birthday\":\"1990-01-01\"}",
+                "{\"name\":\"Ok\",\"email\":\"ok@mail.ru\",\"login\":\"importOk\",\"birthday\":\"1990-01-01\"}"));
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(ImportError::getLine).containsExactly(2L);
+        assertThat(jdbc.queryForObject("SELECT name FROM users WHERE login = ?", String.class, "importNoName"))
+                .isEqualTo("importNoName");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE login IN ('importOk', 'importLong')",
+                Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void testFilmRejectedByDatabaseIsReportedPerLine() throws IOException {
+        ImportResult result = importService.importFilms(ndjson(
+                film("Импорт 1"),
+                film(LONG_NAME),
+                film("Импорт 3")));
+
+        assertThat(result.getAccepted()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(ImportError::getLine).containsExactly(2L);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM films WHERE name LIKE 'Импорт %'", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testLikesAndFriendsRejectedByDatabaseAreReportedPerLine() throws IOException {
+        importService.importFilms(ndjson(film("Лайки из импорта")));
+        importService.importUsers(ndjson(user("likeFirst"), user("likeSecond"), user("likeThird")));
+        long filmId = jdbc.queryForObject("SELECT id FROM films WHERE name = 'Лайки из импорта'", Long.class);
+        long first = userId("likeFirst");
+        long second = userId("likeSecond");
+        long third = userId("likeThird");
+
+        jdbc.execute("ALTER TABLE likes ADD CONSTRAINT import_test CHECK (user_id <> " + second + ")");
+        ImportResult likes;
+        try {
+            likes = importService.importLikes(ndjson(like(filmId, first), like(filmId, second), like(filmId, third)));
+        } finally {
+            jdbc.execute("ALTER TABLE likes DROP CONSTRAINT import_test");
+        }
+        assertThat(likes.getAccepted()).isEqualTo(2);
+        assertThat(likes.getErrors()).extracting(ImportError::getLine).containsExactly(2L);
+        assertThat(jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = ? ORDER BY user_id", Long.class,
+                filmId)).containsExactly(first, third);
+        assertThat(jdbc.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, filmId))
+                .isEqualTo(2);
+
+        jdbc.execute("ALTER TABLE friends ADD CONSTRAINT import_test CHECK (friend_id <> " + third + ")");
+        ImportResult friends;
+        try {
+            friends = importService.importFriends(ndjson(friend(first, second), friend(first, third),
+                    friend(second, first)));
+        } finally {
+            jdbc.execute("ALTER TABLE friends DROP CONSTRAINT import_test");
+        }
+        assertThat(friends.getAccepted()).isEqualTo(2);
+        assertThat(friends.getErrors()).extracting(ImportError::getLine).containsExactly(2L);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM friends WHERE user_id IN (?, ?)", Integer.class,
+                first, second)).isEqualTo(2);
+    }
+
+    private long userId(String login) {
+        return jdbc.queryForObject("SELECT id FROM users WHERE login = ?", Long.class, login);
+    }
+
+    private static String user(String login) {
+        return "{\"name\":\"" + login + "\",\"email\":\"" + login + "@mail.ru\",\"login\":\"" + login + "\","
+                + "\"birthday\":\"1990-01-01\"}";
+    }
+
+    private static String like(long filmId, long userId) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}";
+    }
+
+    private static String friend(long userId, long friendId) {
+        return "{\"userId\":" + userId + ",\"friendId\":" + friendId + "}";
+    }
+
+    private static String film(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90,"
+                + "\"mpa\":{\"id\":1},\"genres\":[{\"id\":1}]}";
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
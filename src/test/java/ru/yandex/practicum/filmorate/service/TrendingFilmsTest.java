@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mapper.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mapper.LikeRowMapper;
+import ru.yandex.practicum.filmorate.mapper.RatingRowMapper;
+import ru.yandex.practicum.filmorate.storage.db.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.GenresDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.yandex.practicum.filmorate.storage.db.RatingDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({TrendingFilms.class, FilmDbStorage.class, FilmRowMapper.class,
+        GenresDbStorage.class, GenreRowMapper.class,
+        RatingDbStorage.class, RatingRowMapper.class, DictionaryCache.class,
+        LikesDbStorage.class, LikeRowMapper.class})
+class TrendingFilmsTest {
+
+    @Autowired
+    private TrendingFilms trendingFilms;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        trendingFilms.rebuild();
+    }
+
+    @Test
+    void testFindTopCountsOnlyLikesInsideWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        trendingFilms.recordLike(1001, now, 1);
+        trendingFilms.recordLike(1002, now.minusHours(30), 1);
+        trendingFilms.recordLike(1002, now.minusHours(31), 1);
+        trendingFilms.recordLike(1003, now.minusDays(8), 1);
+
+        assertThat(trendingFilms.findTop(Duration.ofHours(24), 10)).containsExactly(1001L);
+        assertThat(trendingFilms.findTop(Duration.ofDays(2), 10)).containsExactly(1002L, 1001L);
+        assertThat(trendingFilms.findTop(Duration.ofDays(7), 1)).containsExactly(1002L);
+
+        trendingFilms.recordLike(1002, now.minusHours(30), -1);
+        trendingFilms.recordLike(1002, now.minusHours(31), -1);
+
+        assertThat(trendingFilms.findTop(Duration.ofDays(7), 10)).containsExactly(1001L);
+    }
+
+    @Test
+    void testRebuildLoadsRecentLikes() {
+        jdbc.update("INSERT INTO films (name, description, release_date, duration, rating_id) "
+                + "VALUES ('Trending', 'Trending', DATE '2000-01-01', 100, 1)");
+        long filmId = jdbc.queryForObject("SELECT MAX(id) FROM films", Long.class);
+        jdbc.update("INSERT INTO likes (film_id, user_id, created_at) VALUES (?, 1, ?)",
+                filmId, LocalDateTime.now().minusHours(2));
+
+        trendingFilms.rebuild();
+
+        assertThat(trendingFilms.findTop(Duration.ofHours(3), 10)).containsExactly(filmId);
+        assertThat(trendingFilms.findTop(Duration.ofHours(1), 10)).isEmpty();
+    }
+
+    @Test
+    void testLargeCountDoesNotPresizeQueue() {
+        trendingFilms.recordLike(1001, LocalDateTime.now(), 1);
+
+        assertThat(trendingFilms.findTop(Duration.ofHours(1), Integer.MAX_VALUE)).containsExactly(1001L);
+        assertThat(trendingFilms.findTop(Duration.ofHours(1), 1_000_000_000)).containsExactly(1001L);
+    }
+}